@@ -5,6 +5,7 @@ import io.swagger.v3.oas.annotations.info.Info;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Async
 @OpenAPIDefinition(
@@ -12,6 +13,7 @@ import org.springframework.scheduling.annotation.Async;
         description = "Документация API для управления бронированиями коворкингов")
 )
 @SpringBootApplication
+@EnableScheduling
 public class DemoApplication {
 
     public static void main(String[] args) {
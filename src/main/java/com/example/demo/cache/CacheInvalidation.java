@@ -0,0 +1,5 @@
+package com.example.demo.cache;
+
+// Сообщение шины: ключи кэша cacheName изменились на экземпляре origin
+public record CacheInvalidation(String origin, String cacheName, long[] keys) {
+}
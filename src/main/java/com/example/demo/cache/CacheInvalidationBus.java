@@ -0,0 +1,11 @@
+package com.example.demo.cache;
+
+// Шина инвалидаций между экземплярами приложения; реализация выбирается
+// свойством cache.invalidation.type
+public interface CacheInvalidationBus {
+
+    // Вызывается и внутри транзакции; подписчики получают сообщение только после её коммита
+    void publish(CacheInvalidation invalidation);
+
+    void subscribe(CacheInvalidationListener listener);
+}
@@ -0,0 +1,9 @@
+package com.example.demo.cache;
+
+public interface CacheInvalidationListener {
+
+    void onInvalidation(CacheInvalidation invalidation);
+
+    // Сообщения могли потеряться (например, при переподключении) — кэши сбрасываются целиком
+    void onReset();
+}
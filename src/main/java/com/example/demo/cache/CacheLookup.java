@@ -0,0 +1,8 @@
+package com.example.demo.cache;
+
+import java.util.List;
+import java.util.Map;
+
+// Результат пакетного чтения: найденные значения и id, которые нужно догрузить из БД
+public record CacheLookup<T>(Map<Long, T> hits, List<Long> missingIds) {
+}
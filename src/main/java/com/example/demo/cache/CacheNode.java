@@ -0,0 +1,27 @@
+package com.example.demo.cache;
+
+final class CacheNode<T> {
+    final long key;
+    volatile T value;
+    // Время последней записи по System.nanoTime(), для TTL и обновления
+    volatile long writeTime;
+    // Вес по Weigher кэша, изменяется только под блокировкой сегмента
+    int weight = 1;
+
+    // Поля политики вытеснения, изменяются только под блокировкой сегмента
+    LfuPolicy.FrequencyBucket<T> bucket;
+    byte queue;
+    CacheNode<T> prev;
+    CacheNode<T> next;
+
+    // Положение в колесе таймеров, изменяется только под блокировкой сегмента
+    CacheNode<T> timerPrev;
+    CacheNode<T> timerNext;
+    int timerBucket = -1;
+
+    CacheNode(long key, T value, long writeTime) {
+        this.key = key;
+        this.value = value;
+        this.writeTime = writeTime;
+    }
+}
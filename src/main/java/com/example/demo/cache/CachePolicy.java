@@ -0,0 +1,12 @@
+package com.example.demo.cache;
+
+public enum CachePolicy {
+    // Чистый LFU на корзинах частот
+    LFU,
+    // Окно LRU + сегментированный LRU с допуском по частотному скетчу (W-TinyLFU)
+    WINDOW_TINY_LFU;
+
+    <T> EvictionPolicy<T> create(long capacity) {
+        return this == LFU ? new LfuPolicy<>() : new WindowTinyLfuPolicy<>(capacity);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cache")
+public class CacheProperties {
+
+    private Spec users = new Spec();
+    private Spec reservations = new Spec();
+    private Spec spaces = new Spec();
+    private Spec usersByDate = new Spec();
+    private Spec usersBySpace = new Spec();
+    private NegativeSpec negative = new NegativeSpec();
+    private SnapshotSpec snapshot = new SnapshotSpec();
+    private RefreshSpec refresh = new RefreshSpec();
+
+    @Getter
+    @Setter
+    public static class Spec {
+        // Ограничение по числу записей; не используется, если задан maximumWeight
+        private long maximumSize = 10_000;
+        // Ограничение по суммарному весу записей (примерно в байтах)
+        private Long maximumWeight;
+        private CachePolicy policy = CachePolicy.WINDOW_TINY_LFU;
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+        private Duration refreshAfterWrite = Duration.ofMinutes(1);
+        // Объём второго уровня вне кучи в байтах; 0 — выключен
+        private long offHeapBytes = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class NegativeSpec {
+        private int maximumSize = 10_000;
+        // Ограничивает устаревание, если id появился в БД мимо этого экземпляра
+        private Duration ttl = Duration.ofMinutes(1);
+    }
+
+    @Getter
+    @Setter
+    public static class SnapshotSpec {
+        private boolean enabled = true;
+        private String directory = "cache-snapshots";
+        // false — только ключи, при старте значения перечитываются из БД;
+        // true — и значения, прогрев без БД, но данные устаревают до expire-after-write
+        private boolean includeValues = false;
+        // Период записи снимка, читается в @Scheduled
+        private Duration interval = Duration.ofMinutes(5);
+    }
+
+    @Getter
+    @Setter
+    public static class RefreshSpec {
+        // Потоки фонового обновления записей и прогрева из снимков
+        private int threads = 2;
+        // Обновления сверх очереди пропускаются, запись обновится при следующем чтении
+        private int queueCapacity = 1000;
+    }
+}
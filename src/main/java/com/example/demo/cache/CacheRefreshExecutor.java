@@ -0,0 +1,44 @@
+package com.example.demo.cache;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+
+// Отдельный ограниченный пул для обновления кэшей: загрузки из БД не занимают
+// общий ForkJoinPool, а при переполнении очереди задача отклоняется
+@Component
+public class CacheRefreshExecutor implements Executor {
+
+    private final ThreadPoolExecutor executor;
+
+    public CacheRefreshExecutor(CacheProperties properties) {
+        CacheProperties.RefreshSpec spec = properties.getRefresh();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = task -> {
+            Thread thread = new Thread(task, "cache-refresh-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(spec.getThreads(), spec.getThreads(),
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(spec.getQueueCapacity()),
+            threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.cache;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Снимок содержимого кэша в файле, отображённом в память:
+// заголовок (magic, версия, флаг значений, число записей), затем ключи и, по желанию,
+// значения в виде [длина][байты кодека]. Пишется во временный файл и атомарно подменяется.
+public final class CacheSnapshotFile {
+
+    private static final int MAGIC = 0x4C465553;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 3 + 1;
+
+    public record Contents<T>(List<Long> keys, Map<Long, T> values) {
+    }
+
+    private CacheSnapshotFile() {
+    }
+
+    // codec == null — сохраняются только ключи
+    public static <T> void write(Path path, Map<Long, T> entries, SnapshotCodec<T> codec)
+        throws IOException {
+        long size = HEADER_BYTES;
+        for (T value : entries.values()) {
+            size += Long.BYTES + (codec == null ? 0 : Integer.BYTES + codec.size(value));
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Cache snapshot is too large: " + size + " bytes");
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.put((byte) (codec == null ? 0 : 1));
+            buffer.putInt(entries.size());
+            for (Map.Entry<Long, T> entry : entries.entrySet()) {
+                buffer.putLong(entry.getKey());
+                if (codec != null) {
+                    buffer.putInt(codec.size(entry.getValue()));
+                    codec.write(entry.getValue(), buffer);
+                }
+            }
+            buffer.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Значения читаются, только если они есть в файле и передан кодек
+    public static <T> Contents<T> read(Path path, SnapshotCodec<T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES
+                || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unsupported cache snapshot: " + path);
+            }
+            boolean withValues = buffer.get() == 1;
+            int count = buffer.getInt();
+            List<Long> keys = new ArrayList<>(count);
+            Map<Long, T> values = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                long key = buffer.getLong();
+                keys.add(key);
+                if (withValues) {
+                    int length = buffer.getInt();
+                    if (codec != null) {
+                        ByteBuffer value = buffer.slice(buffer.position(), length);
+                        values.put(key, codec.read(value));
+                    }
+                    buffer.position(buffer.position() + length);
+                }
+            }
+            return new Contents<>(keys, values);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                 | IllegalArgumentException e) {
+            throw new IOException("Corrupted cache snapshot: " + path, e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.cache;
+
+// Снимок счётчиков кэша на момент вызова LfuCache.stats()
+public record CacheStats(
+    long hitCount,
+    long missCount,
+    long putCount,
+    long evictionCount,
+    long loadSuccessCount,
+    long loadFailureCount,
+    long totalLoadTimeNanos,
+    long offHeapHitCount,
+    long estimatedSize,
+    long weightedSize,
+    long offHeapSize) {
+
+    public double hitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public double averageLoadPenaltyNanos() {
+        long loads = loadSuccessCount + loadFailureCount;
+        return loads == 0 ? 0.0 : (double) totalLoadTimeNanos / loads;
+    }
+}
@@ -1,11 +1,17 @@
 package com.example.demo.cache;
 
-import com.example.demo.entity.CoworkingSpace;
 import org.springframework.stereotype.Component;
 
 @Component
-public class CoworkingSpaceCache extends LfuCache<CoworkingSpace> {
-    public CoworkingSpaceCache() {
-        super(100);
+public class CoworkingSpaceCache extends LfuCache<CoworkingSpaceSnapshot> {
+    public CoworkingSpaceCache(CacheProperties properties, CoworkingSpaceSnapshotCodec codec,
+                               CacheRefreshExecutor refreshExecutor) {
+        super(properties.getSpaces(), CoworkingSpaceCache::weigh, codec, refreshExecutor);
     }
-}
\ No newline at end of file
+
+    // Примерный размер снимка в байтах: у популярного пространства тысячи id бронирований
+    private static int weigh(CoworkingSpaceSnapshot space) {
+        return 40 + Weigher.weightOf(space.name()) + Weigher.weightOf(space.address())
+            + Weigher.weightOf(space.reservationIds());
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.demo.cache;
+
+// Неизменяемый снимок коворкинг-пространства для кэша
+public record CoworkingSpaceSnapshot(
+    long id,
+    String name,
+    String address,
+    long[] reservationIds) {
+}
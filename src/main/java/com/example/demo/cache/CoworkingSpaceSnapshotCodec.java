@@ -0,0 +1,34 @@
+package com.example.demo.cache;
+
+import java.nio.ByteBuffer;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CoworkingSpaceSnapshotCodec implements SnapshotCodec<CoworkingSpaceSnapshot> {
+
+    @Override
+    public int size(CoworkingSpaceSnapshot space) {
+        return Long.BYTES
+            + SnapshotCodec.sizeOf(space.name())
+            + SnapshotCodec.sizeOf(space.address())
+            + SnapshotCodec.sizeOf(space.reservationIds());
+    }
+
+    @Override
+    public void write(CoworkingSpaceSnapshot space, ByteBuffer buffer) {
+        buffer.putLong(space.id());
+        SnapshotCodec.putString(buffer, space.name());
+        SnapshotCodec.putString(buffer, space.address());
+        SnapshotCodec.putLongs(buffer, space.reservationIds());
+    }
+
+    @Override
+    public CoworkingSpaceSnapshot read(ByteBuffer buffer) {
+        return new CoworkingSpaceSnapshot(
+            buffer.getLong(),
+            SnapshotCodec.getString(buffer),
+            SnapshotCodec.getString(buffer),
+            SnapshotCodec.getLongs(buffer)
+        );
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.cache;
+
+// Политика вытеснения одного сегмента; все методы вызываются под блокировкой сегмента
+interface EvictionPolicy<T> {
+
+    void add(CacheNode<T> node);
+
+    void recordAccess(CacheNode<T> node);
+
+    void remove(CacheNode<T> node);
+
+    // Вес записи изменился при обновлении значения
+    void updateWeight(CacheNode<T> node, int weight);
+
+    // Новая ёмкость сегмента при изменении размера кэша на лету
+    void setCapacity(long capacity);
+
+    // Запись, которую нужно вытеснить, чтобы освободить место под новую
+    CacheNode<T> victim();
+
+    void clear();
+}
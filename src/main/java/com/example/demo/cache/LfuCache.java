@@ -1,7 +1,21 @@
 package com.example.demo.cache;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,74 +23,725 @@ public abstract class LfuCache<T> {
 
     private static final Logger logger = LoggerFactory.getLogger(LfuCache.class);
 
-    private final int maxCapacity;
-    private final Map<Long, CacheEntry<T>> cache = new HashMap<>();
+    private final Segment<T>[] segments;
+    // Ограничение в весе записей; без Weigher вес каждой записи равен 1
+    private final Weigher<? super T> weigher;
+    private final boolean weighted;
+    private volatile long maximum;
+    // 0 — без ограничения времени жизни / без фонового обновления
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final Executor refreshExecutor;
+    // Загрузки в процессе: одновременные промахи по одному ключу ждут одну загрузку
+    private final Map<Long, CompletableFuture<T>> inFlightLoads = new ConcurrentHashMap<>();
+    private final Set<Long> refreshingKeys = ConcurrentHashMap.newKeySet();
 
-    protected static class CacheEntry<T> {
-        T value;
-        int frequency;
+    // Счётчики без аллокаций и без общей точки конкуренции между потоками
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder putCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder offHeapHitCount = new LongAdder();
 
-        CacheEntry(T value) {
-            this.value = value;
-            this.frequency = 1;
+    private static final class Segment<T> {
+        // Запись — под блокировкой записи; чтение индекса — оптимистичное
+        final StampedLock lock = new StampedLock();
+        final LongNodeTable<T> table = new LongNodeTable<>();
+        final EvictionPolicy<T> policy;
+        final ReadBuffer<T> readBuffer = new ReadBuffer<>();
+        final TimerWheel<T> timerWheel;
+        // Второй уровень вне кучи; null, если выключен
+        final OffHeapStore<T> offHeap;
+        // Изменяются только под блокировкой записи
+        long capacity;
+        long weightedSize;
+
+        Segment(long capacity, CachePolicy cachePolicy, long expireAfterWriteNanos,
+                OffHeapStore<T> offHeap) {
+            this.capacity = capacity;
+            this.policy = cachePolicy.create(capacity);
+            this.timerWheel = expireAfterWriteNanos > 0
+                ? new TimerWheel<>(expireAfterWriteNanos, System.nanoTime())
+                : null;
+            this.offHeap = offHeap;
+        }
+
+        CacheNode<T> find(long key) {
+            long stamp = lock.tryOptimisticRead();
+            CacheNode<T> node = table.get(key);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    node = table.get(key);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return node;
         }
     }
 
     protected LfuCache(int maxCapacity) {
-        this.maxCapacity = maxCapacity;
-        logger.info("LFUCache initialized with max capacity: " + maxCapacity);
+        this(maxCapacity, CachePolicy.LFU);
+    }
+
+    protected LfuCache(int maxCapacity, CachePolicy cachePolicy) {
+        this(maxCapacity, cachePolicy, null, null, null, null);
     }
 
-    public synchronized T get(Long id) {
-        CacheEntry<T> entry = cache.get(id);
-        if (entry != null) {
-            entry.frequency++;
-            logger.info("Cache hit for key: " + id + ", frequency: " + entry.frequency);
-            return entry.value;
+    // maximumWeight из настроек включает Weigher, иначе кэш ограничен числом записей;
+    // off-heap-bytes > 0 включает второй уровень, кодек сериализует значения для него
+    protected LfuCache(CacheProperties.Spec spec, Weigher<? super T> weigher,
+                       SnapshotCodec<T> codec, Executor refreshExecutor) {
+        this(spec.getMaximumWeight() != null ? spec.getMaximumWeight() : spec.getMaximumSize(),
+            spec.getPolicy(),
+            spec.getMaximumWeight() != null ? weigher : null,
+            spec.getExpireAfterWrite(),
+            spec.getRefreshAfterWrite(),
+            refreshExecutor,
+            codec,
+            spec.getOffHeapBytes());
+    }
+
+    protected LfuCache(long maximum, CachePolicy cachePolicy, Weigher<? super T> weigher,
+                       Duration expireAfterWrite, Duration refreshAfterWrite,
+                       Executor refreshExecutor) {
+        this(maximum, cachePolicy, weigher, expireAfterWrite, refreshAfterWrite,
+            refreshExecutor, null, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected LfuCache(long maximum, CachePolicy cachePolicy, Weigher<? super T> weigher,
+                       Duration expireAfterWrite, Duration refreshAfterWrite,
+                       Executor refreshExecutor, SnapshotCodec<T> codec, long offHeapBytes) {
+        if (maximum < 0) {
+            throw new IllegalArgumentException("Cache maximum cannot be negative: " + maximum);
+        }
+        if (refreshAfterWrite != null && refreshExecutor == null) {
+            throw new IllegalArgumentException("Refresh after write requires an executor");
         }
-        logger.info("Cache miss for key: " + id);
-        return null;
+        this.refreshExecutor = refreshExecutor;
+        this.maximum = maximum;
+        this.weighted = weigher != null;
+        this.weigher = weigher != null ? weigher : value -> 1;
+        this.expireAfterWriteNanos = toNanos(expireAfterWrite);
+        this.refreshAfterWriteNanos = toNanos(refreshAfterWrite);
+        int segmentCount = segmentCount(maximum);
+        this.segments = new Segment[segmentCount];
+        // Ёмкость делится между сегментами, поэтому вытеснение LFU в пределах сегмента
+        boolean offHeap = codec != null && offHeapBytes > 0;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(segmentCapacity(i, maximum), cachePolicy,
+                expireAfterWriteNanos,
+                offHeap ? new OffHeapStore<>(offHeapBytes / segmentCount, codec) : null);
+        }
+        logger.info("LFUCache initialized with maximum " + (weighted ? "weight" : "size")
+            + ": " + maximum + ", segments: " + segmentCount + ", policy: " + cachePolicy
+            + ", expire after write: " + expireAfterWrite
+            + ", refresh after write: " + refreshAfterWrite
+            + ", off-heap bytes: " + (offHeap ? offHeapBytes : 0));
+    }
+
+    public T get(Long id) {
+        return id == null ? null : get(id.longValue());
+    }
+
+    public T get(long id) {
+        T value = lookup(id, System.nanoTime());
+        if (value == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return value;
     }
 
-    public synchronized void put(Long id, T value) {
-        if (cache.containsKey(id)) {
-            CacheEntry<T> entry = cache.get(id);
-            entry.value = value;
-            entry.frequency++;
-            logger.info("Cache update for key: " + id + ", frequency: " + entry.frequency);
-        } else {
-            if (cache.size() >= maxCapacity) {
-                logger.info("Cache is full, evicting least frequently used entry");
-                evictLeastFrequentlyUsed();
+    public CacheLookup<T> getAll(Collection<Long> ids) {
+        Map<Long, T> hits = new LinkedHashMap<>();
+        Set<Long> missingIds = new LinkedHashSet<>();
+        long now = System.nanoTime();
+        for (Long id : ids) {
+            if (id == null || hits.containsKey(id) || missingIds.contains(id)) {
+                continue;
+            }
+            T value = lookup(id, now);
+            if (value == null) {
+                missingIds.add(id);
+            } else {
+                hits.put(id, value);
             }
-            cache.put(id, new CacheEntry<>(value));
-            logger.info("Cache put for key: " + id + ", frequency: 1");
         }
+        hitCount.add(hits.size());
+        missCount.add(missingIds.size());
+        return new CacheLookup<>(hits, new ArrayList<>(missingIds));
     }
 
-    private void evictLeastFrequentlyUsed() {
-        Long lfuKey = null;
-        int minFrequency = Integer.MAX_VALUE;
+    // Возвращает значение из кэша или загружает его один раз для всех одновременных промахов.
+    // Загрузчик возвращает null, если значения нет; null не кэшируется.
+    // Если запись старше refreshAfterWrite, читатель получает текущее значение,
+    // а тот же загрузчик асинхронно обновляет его в фоне.
+    public T getOrLoad(long id, LongFunction<T> loader) {
+        long now = System.nanoTime();
+        CacheNode<T> node = findLive(id, now);
+        if (node != null) {
+            hitCount.increment();
+            T cached = node.value;
+            if (refreshAfterWriteNanos > 0 && now - node.writeTime >= refreshAfterWriteNanos) {
+                refreshAsync(node, loader);
+            }
+            return cached;
+        }
+        T promoted = promote(id, now);
+        if (promoted != null) {
+            hitCount.increment();
+            return promoted;
+        }
+        missCount.increment();
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlightLoads.putIfAbsent(id, load);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            // Повторная проверка: ключ мог загрузиться, пока мы регистрировали загрузку
+            CacheNode<T> current = findLive(id, System.nanoTime());
+            T value;
+            if (current != null) {
+                value = current.value;
+            } else {
+                value = load(id, loader);
+                if (value != null) {
+                    putLoaded(id, value, load);
+                }
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(id, load);
+        }
+    }
+
+    private T load(long id, LongFunction<T> loader) {
+        long start = System.nanoTime();
+        try {
+            T value = loader.apply(id);
+            loadSuccessCount.increment();
+            return value;
+        } catch (RuntimeException | Error e) {
+            loadFailureCount.increment();
+            throw e;
+        } finally {
+            totalLoadTime.add(System.nanoTime() - start);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void refreshAsync(CacheNode<T> node, LongFunction<T> loader) {
+        long id = node.key;
+        if (!refreshingKeys.add(id)) {
+            return;
+        }
+        long writeTime = node.writeTime;
+        try {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    T value = load(id, loader);
+                    putRefreshed(node, writeTime, value);
+                } catch (RuntimeException e) {
+                    logger.warn("Cache refresh failed for key: " + id, e);
+                } finally {
+                    refreshingKeys.remove(id);
+                }
+            }, refreshExecutor);
+        } catch (RejectedExecutionException e) {
+            // Очередь заполнена: читатель получает текущее значение, обновление — в другой раз
+            refreshingKeys.remove(id);
+        }
+    }
 
-        for (Map.Entry<Long, CacheEntry<T>> entry : cache.entrySet()) {
-            if (entry.getValue().frequency < minFrequency) {
-                minFrequency = entry.getValue().frequency;
-                lfuKey = entry.getKey();
+    // Результат обновления применяется, только если запись не менялась с момента его запуска
+    private void putRefreshed(CacheNode<T> node, long writeTime, T value) {
+        Segment<T> segment = segmentFor(node.key);
+        long stamp = segment.lock.writeLock();
+        try {
+            if (segment.table.get(node.key) != node || node.writeTime != writeTime) {
+                return;
             }
+            if (value == null) {
+                removeLocked(segment, node);
+            } else {
+                putLocked(segment, node.key, value, System.nanoTime());
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
         }
-        if (lfuKey != null) {
-            cache.remove(lfuKey);
-            logger.info("Evicted key: " + lfuKey + " with frequency: " + minFrequency);
+    }
+
+    public void put(Long id, T value) {
+        put(id.longValue(), value);
+    }
+
+    public void put(long id, T value) {
+        // Явная запись важнее результата параллельной загрузки, который мог устареть
+        inFlightLoads.remove(id);
+        Segment<T> segment = segmentFor(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            putLocked(segment, id, value, System.nanoTime());
+        } finally {
+            segment.lock.unlockWrite(stamp);
         }
     }
 
-    public synchronized void remove(Long id) {
-        cache.remove(id);
-        logger.info("Removed key: " + id);
+    // Блокировка каждого затронутого сегмента берётся один раз на весь пакет
+    public void putAll(Map<Long, T> values) {
+        putAll(values, false);
+    }
+
+    // Записывает только ключи без живой записи в L1 и L2 и без загрузки в процессе,
+    // например при прогреве из снимка. Проверка идёт под той же блокировкой, что и запись,
+    // и в отличие от get не трогает статистику, частоты обращений и второй уровень
+    public void putAllAbsent(Map<Long, T> values) {
+        putAll(values, true);
+    }
+
+    private void putAll(Map<Long, T> values, boolean onlyAbsent) {
+        List<List<Map.Entry<Long, T>>> bySegment = new ArrayList<>(segments.length);
+        for (int i = 0; i < segments.length; i++) {
+            bySegment.add(new ArrayList<>());
+        }
+        for (Map.Entry<Long, T> entry : values.entrySet()) {
+            if (onlyAbsent) {
+                if (inFlightLoads.containsKey(entry.getKey())) {
+                    continue;
+                }
+            } else {
+                inFlightLoads.remove(entry.getKey());
+            }
+            bySegment.get(segmentIndex(entry.getKey())).add(entry);
+        }
+        long now = System.nanoTime();
+        for (int i = 0; i < segments.length; i++) {
+            List<Map.Entry<Long, T>> entries = bySegment.get(i);
+            if (entries.isEmpty()) {
+                continue;
+            }
+            Segment<T> segment = segments[i];
+            long stamp = segment.lock.writeLock();
+            try {
+                for (Map.Entry<Long, T> entry : entries) {
+                    if (!onlyAbsent || !containsLocked(segment, entry.getKey(), now)) {
+                        putLocked(segment, entry.getKey(), entry.getValue(), now);
+                    }
+                }
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private void putLoaded(long id, T value, CompletableFuture<T> load) {
+        Segment<T> segment = segmentFor(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            long now = System.nanoTime();
+            CacheNode<T> existing = segment.table.get(id);
+            if (inFlightLoads.get(id) == load && (existing == null || isExpired(existing, now))) {
+                putLocked(segment, id, value, now);
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void putLocked(Segment<T> segment, long id, T value, long now) {
+        maintain(segment, now);
+        // Новое значение заменяет копию во втором уровне
+        if (segment.offHeap != null) {
+            segment.offHeap.remove(id);
+        }
+        storeLocked(segment, id, value, now);
+        putCount.increment();
+    }
+
+    private void storeLocked(Segment<T> segment, long id, T value, long writeTime) {
+        int weight = weigher.weigh(value);
+        CacheNode<T> node = segment.table.get(id);
+        if (segment.capacity <= 0 || weight > segment.capacity) {
+            // Запись тяжелее всего сегмента не кэшируется, старое значение тоже убираем
+            if (node != null) {
+                removeLocked(segment, node);
+            }
+            return;
+        }
+        if (node != null) {
+            node.value = value;
+            node.writeTime = writeTime;
+            segment.weightedSize += weight - node.weight;
+            segment.policy.updateWeight(node, weight);
+            segment.policy.recordAccess(node);
+            if (segment.timerWheel != null) {
+                segment.timerWheel.schedule(node, writeTime + expireAfterWriteNanos);
+            }
+            evictExcess(segment);
+            return;
+        }
+        while (segment.weightedSize + weight > segment.capacity && evict(segment)) {
+            // вытесняем, пока новая запись не поместится
+        }
+        node = new CacheNode<>(id, value, writeTime);
+        node.weight = weight;
+        segment.weightedSize += weight;
+        segment.table.insert(node);
+        segment.policy.add(node);
+        if (segment.timerWheel != null) {
+            segment.timerWheel.schedule(node, writeTime + expireAfterWriteNanos);
+        }
+    }
+
+    // Вытесненная из L1 запись переносится во второй уровень, если он включён
+    private boolean evict(Segment<T> segment) {
+        CacheNode<T> victim = segment.policy.victim();
+        if (victim == null) {
+            return false;
+        }
+        removeLocked(segment, victim);
+        if (segment.offHeap != null) {
+            segment.offHeap.put(victim.key, victim.value, victim.writeTime);
+        }
+        evictionCount.increment();
+        return true;
+    }
+
+    private void evictExcess(Segment<T> segment) {
+        while (segment.weightedSize > segment.capacity && evict(segment)) {
+            // вытесняем до новой ёмкости
+        }
+    }
+
+    public void remove(Long id) {
+        if (id != null) {
+            remove(id.longValue());
+        }
+    }
+
+    public void remove(long id) {
+        inFlightLoads.remove(id);
+        Segment<T> segment = segmentFor(id);
+        long stamp = segment.lock.writeLock();
+        try {
+            CacheNode<T> node = segment.table.get(id);
+            if (node != null) {
+                removeLocked(segment, node);
+            }
+            if (segment.offHeap != null) {
+                segment.offHeap.remove(id);
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
     }
 
-    public synchronized void clear() {
-        cache.clear();
+    // Как putAll: блокировка каждого затронутого сегмента берётся один раз
+    public void removeAll(Collection<Long> ids) {
+        List<List<Long>> bySegment = new ArrayList<>(segments.length);
+        for (int i = 0; i < segments.length; i++) {
+            bySegment.add(new ArrayList<>());
+        }
+        for (Long id : ids) {
+            if (id != null) {
+                inFlightLoads.remove(id);
+                bySegment.get(segmentIndex(id)).add(id);
+            }
+        }
+        for (int i = 0; i < segments.length; i++) {
+            List<Long> segmentIds = bySegment.get(i);
+            if (segmentIds.isEmpty()) {
+                continue;
+            }
+            Segment<T> segment = segments[i];
+            long stamp = segment.lock.writeLock();
+            try {
+                for (long id : segmentIds) {
+                    CacheNode<T> node = segment.table.get(id);
+                    if (node != null) {
+                        removeLocked(segment, node);
+                    }
+                    if (segment.offHeap != null) {
+                        segment.offHeap.remove(id);
+                    }
+                }
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    public void clear() {
+        inFlightLoads.clear();
+        for (Segment<T> segment : segments) {
+            long stamp = segment.lock.writeLock();
+            try {
+                drainReadBuffer(segment);
+                segment.table.clear();
+                segment.policy.clear();
+                segment.weightedSize = 0;
+                if (segment.timerWheel != null) {
+                    segment.timerWheel.clear();
+                }
+                if (segment.offHeap != null) {
+                    segment.offHeap.clear();
+                }
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
         logger.info("Cache cleared");
     }
-}
\ No newline at end of file
+
+    // Меняет ограничение кэша на лету; лишнее вытесняется сразу. Число сегментов не меняется.
+    public void setMaximum(long maximum) {
+        if (maximum < 0) {
+            throw new IllegalArgumentException("Cache maximum cannot be negative: " + maximum);
+        }
+        this.maximum = maximum;
+        long now = System.nanoTime();
+        for (int i = 0; i < segments.length; i++) {
+            Segment<T> segment = segments[i];
+            long stamp = segment.lock.writeLock();
+            try {
+                maintain(segment, now);
+                segment.capacity = segmentCapacity(i, maximum);
+                segment.policy.setCapacity(segment.capacity);
+                evictExcess(segment);
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+        logger.info("Cache resized to maximum " + (weighted ? "weight" : "size") + ": " + maximum);
+    }
+
+    // Копия живых записей, например для снимка на диск; сегменты обходятся по очереди
+    public Map<Long, T> entries() {
+        Map<Long, T> entries = new LinkedHashMap<>();
+        long now = System.nanoTime();
+        for (Segment<T> segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                segment.table.forEach(node -> {
+                    if (!isExpired(node, now)) {
+                        entries.put(node.key, node.value);
+                    }
+                });
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return entries;
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(
+            hitCount.sum(),
+            missCount.sum(),
+            putCount.sum(),
+            evictionCount.sum(),
+            loadSuccessCount.sum(),
+            loadFailureCount.sum(),
+            totalLoadTime.sum(),
+            offHeapHitCount.sum(),
+            getEstimatedSize(),
+            getWeightedSize(),
+            getOffHeapSize());
+    }
+
+    public long getMaximum() {
+        return maximum;
+    }
+
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    public long getWeightedSize() {
+        long total = 0;
+        for (Segment<T> segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                total += segment.weightedSize;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return total;
+    }
+
+    public long getOffHeapSize() {
+        long total = 0;
+        for (Segment<T> segment : segments) {
+            if (segment.offHeap == null) {
+                continue;
+            }
+            long stamp = segment.lock.readLock();
+            try {
+                total += segment.offHeap.size();
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return total;
+    }
+
+    public long getEstimatedSize() {
+        long total = 0;
+        for (Segment<T> segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                total += segment.table.size();
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return total;
+    }
+
+    private void removeLocked(Segment<T> segment, CacheNode<T> node) {
+        segment.table.remove(node.key);
+        segment.weightedSize -= node.weight;
+        segment.policy.remove(node);
+        if (segment.timerWheel != null) {
+            segment.timerWheel.cancel(node);
+        }
+    }
+
+    // Истёкшие записи не отдаются читателям, даже если колесо таймеров ещё не дошло до них
+    private CacheNode<T> findLive(long id, long now) {
+        Segment<T> segment = segmentFor(id);
+        CacheNode<T> node = segment.find(id);
+        if (node == null || isExpired(node, now)) {
+            return null;
+        }
+        if (segment.readBuffer.offer(node)) {
+            tryMaintain(segment, now);
+        }
+        return node;
+    }
+
+    private T lookup(long id, long now) {
+        CacheNode<T> node = findLive(id, now);
+        return node != null ? node.value : promote(id, now);
+    }
+
+    // Промах в L1: запись могла уйти во второй уровень — возвращаем её в L1
+    private T promote(long id, long now) {
+        Segment<T> segment = segmentFor(id);
+        if (segment.offHeap == null) {
+            return null;
+        }
+        long stamp = segment.lock.writeLock();
+        try {
+            CacheNode<T> node = segment.table.get(id);
+            if (node != null) {
+                // уже перенесена параллельным читателем или записана заново
+                return isExpired(node, now) ? null : node.value;
+            }
+            CacheNode<T> demoted = segment.offHeap.take(id);
+            if (demoted == null || isExpired(demoted, now)) {
+                return null;
+            }
+            maintain(segment, now);
+            storeLocked(segment, id, demoted.value, demoted.writeTime);
+            offHeapHitCount.increment();
+            return demoted.value;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean containsLocked(Segment<T> segment, long id, long now) {
+        CacheNode<T> node = segment.table.get(id);
+        if (node != null) {
+            return !isExpired(node, now);
+        }
+        return segment.offHeap != null
+            && segment.offHeap.contains(id, writeTime -> isExpired(writeTime, now));
+    }
+
+    private boolean isExpired(CacheNode<T> node, long now) {
+        return isExpired(node.writeTime, now);
+    }
+
+    private boolean isExpired(long writeTime, long now) {
+        return expireAfterWriteNanos > 0 && now - writeTime >= expireAfterWriteNanos;
+    }
+
+    // Отложенная работа сегмента: применить буфер обращений и снять истёкшие записи
+    private void maintain(Segment<T> segment, long now) {
+        drainReadBuffer(segment);
+        if (segment.timerWheel != null) {
+            segment.timerWheel.advance(now, expireAfterWriteNanos,
+                node -> removeLocked(segment, node));
+        }
+    }
+
+    private void tryMaintain(Segment<T> segment, long now) {
+        long stamp = segment.lock.tryWriteLock();
+        if (stamp != 0L) {
+            try {
+                maintain(segment, now);
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private void drainReadBuffer(Segment<T> segment) {
+        segment.readBuffer.drainTo(segment.policy::recordAccess);
+    }
+
+    private Segment<T> segmentFor(long id) {
+        return segments[segmentIndex(id)];
+    }
+
+    private int segmentIndex(long id) {
+        int hash = Long.hashCode(id);
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+        return hash & (segments.length - 1);
+    }
+
+    private static long toNanos(Duration duration) {
+        return duration == null || duration.isNegative() ? 0L : duration.toNanos();
+    }
+
+    private long segmentCapacity(int index, long maximum) {
+        int count = segments.length;
+        return maximum / count + (index < maximum % count ? 1 : 0);
+    }
+
+    private static int segmentCount(long maxCapacity) {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int count = 1;
+        while (count < processors && count * 2 <= Math.max(1, maxCapacity)) {
+            count <<= 1;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.cache;
+
+// LFU на корзинах частот: обращение, вставка и выбор жертвы за O(1).
+// Не потокобезопасен, вызывается под блокировкой сегмента.
+final class LfuPolicy<T> implements EvictionPolicy<T> {
+
+    // Список корзин частот по возрастанию; голова — корзина с минимальной частотой
+    private FrequencyBucket<T> minFrequencyBucket;
+
+    // Записи с одинаковой частотой в порядке обращения: голова — самая давняя
+    static final class FrequencyBucket<T> {
+        final int frequency;
+        FrequencyBucket<T> prev;
+        FrequencyBucket<T> next;
+        CacheNode<T> head;
+        CacheNode<T> tail;
+
+        FrequencyBucket(int frequency) {
+            this.frequency = frequency;
+        }
+
+        void append(CacheNode<T> node) {
+            node.bucket = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void unlink(CacheNode<T> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.bucket = null;
+        }
+
+        boolean isEmpty() {
+            return head == null;
+        }
+    }
+
+    @Override
+    public void add(CacheNode<T> node) {
+        FrequencyBucket<T> head = minFrequencyBucket;
+        if (head == null || head.frequency != 1) {
+            FrequencyBucket<T> bucket = new FrequencyBucket<>(1);
+            bucket.next = head;
+            if (head != null) {
+                head.prev = bucket;
+            }
+            minFrequencyBucket = bucket;
+            head = bucket;
+        }
+        head.append(node);
+    }
+
+    // Переносит запись в корзину со следующей частотой
+    @Override
+    public void recordAccess(CacheNode<T> node) {
+        FrequencyBucket<T> current = node.bucket;
+        if (current == null) {
+            return; // запись уже удалена, обращение пришло из буфера с опозданием
+        }
+        if (current.frequency == Integer.MAX_VALUE) {
+            current.unlink(node);
+            current.append(node);
+            return;
+        }
+        int nextFrequency = current.frequency + 1;
+        FrequencyBucket<T> target = current.next;
+        if (target == null || target.frequency != nextFrequency) {
+            target = new FrequencyBucket<>(nextFrequency);
+            target.prev = current;
+            target.next = current.next;
+            if (current.next != null) {
+                current.next.prev = target;
+            }
+            current.next = target;
+        }
+        current.unlink(node);
+        target.append(node);
+        if (current.isEmpty()) {
+            unlinkBucket(current);
+        }
+    }
+
+    @Override
+    public void remove(CacheNode<T> node) {
+        FrequencyBucket<T> bucket = node.bucket;
+        if (bucket == null) {
+            return;
+        }
+        bucket.unlink(node);
+        if (bucket.isEmpty()) {
+            unlinkBucket(bucket);
+        }
+    }
+
+    @Override
+    public void updateWeight(CacheNode<T> node, int weight) {
+        node.weight = weight;
+    }
+
+    @Override
+    public void setCapacity(long capacity) {
+        // жертва всегда из минимальной частоты, ёмкость политике не нужна
+    }
+
+    @Override
+    public CacheNode<T> victim() {
+        return minFrequencyBucket == null ? null : minFrequencyBucket.head;
+    }
+
+    @Override
+    public void clear() {
+        for (FrequencyBucket<T> bucket = minFrequencyBucket; bucket != null; bucket = bucket.next) {
+            CacheNode<T> node = bucket.head;
+            while (node != null) {
+                CacheNode<T> next = node.next;
+                node.prev = null;
+                node.next = null;
+                node.bucket = null;
+                node = next;
+            }
+        }
+        minFrequencyBucket = null;
+    }
+
+    private void unlinkBucket(FrequencyBucket<T> bucket) {
+        if (bucket.prev == null) {
+            minFrequencyBucket = bucket.next;
+        } else {
+            bucket.prev.next = bucket.next;
+        }
+        if (bucket.next != null) {
+            bucket.next.prev = bucket.prev;
+        }
+        bucket.prev = null;
+        bucket.next = null;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.cache;
+
+import java.util.Arrays;
+
+// Открытая адресация long -> long без упаковки; отрицательные значения зарезервированы
+// (EMPTY помечает свободный слот). Не потокобезопасна.
+final class LongLongTable {
+
+    static final long EMPTY = -1L;
+    private static final int MIN_LENGTH = 8;
+
+    private long[] keys = new long[MIN_LENGTH];
+    private long[] values = emptyValues(MIN_LENGTH);
+    private int size;
+
+    long get(long key) {
+        int mask = values.length - 1;
+        int index = indexOf(key, mask);
+        while (values[index] != EMPTY) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    void put(long key, long value) {
+        int mask = values.length - 1;
+        int index = indexOf(key, mask);
+        while (values[index] != EMPTY) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        if ((size + 1) * 4L > values.length * 3L) {
+            resize(values.length << 1);
+            put(key, value);
+            return;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    long remove(long key) {
+        int mask = values.length - 1;
+        int index = indexOf(key, mask);
+        while (values[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        long removed = values[index];
+        if (removed == EMPTY) {
+            return EMPTY;
+        }
+        // Обратный сдвиг, как в LongNodeTable
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (values[next] != EMPTY) {
+            int home = indexOf(keys[next], mask);
+            boolean reachable = hole <= next
+                ? hole < home && home <= next
+                : hole < home || home <= next;
+            if (!reachable) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = 0L;
+        values[hole] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        keys = new long[MIN_LENGTH];
+        values = emptyValues(MIN_LENGTH);
+        size = 0;
+    }
+
+    private void resize(int length) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[length];
+        values = emptyValues(length);
+        int mask = length - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                int index = indexOf(oldKeys[i], mask);
+                while (values[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static long[] emptyValues(int length) {
+        long[] values = new long[length];
+        Arrays.fill(values, EMPTY);
+        return values;
+    }
+
+    private static int indexOf(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
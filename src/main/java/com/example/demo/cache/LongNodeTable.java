@@ -0,0 +1,129 @@
+package com.example.demo.cache;
+
+import java.util.function.Consumer;
+
+// Хеш-таблица с открытой адресацией по примитивному ключу long: без упаковки ключей
+// в Long и без отдельного узла HashMap на запись. Запись узла кэша хранится прямо в слоте.
+// Изменяется только под блокировкой записи сегмента; читатели используют оптимистичное
+// чтение StampedLock и перепроверяют результат.
+final class LongNodeTable<T> {
+
+    private static final int MIN_LENGTH = 8;
+
+    private static final class Slots<T> {
+        final long[] keys;
+        final CacheNode<T>[] nodes;
+
+        @SuppressWarnings("unchecked")
+        Slots(int length) {
+            this.keys = new long[length];
+            this.nodes = new CacheNode[length];
+        }
+    }
+
+    private Slots<T> slots = new Slots<>(MIN_LENGTH);
+    private int size;
+
+    CacheNode<T> get(long key) {
+        Slots<T> current = slots;
+        long[] keys = current.keys;
+        CacheNode<T>[] nodes = current.nodes;
+        int mask = nodes.length - 1;
+        int index = indexOf(key, mask);
+        for (int probes = 0; probes <= mask; probes++) {
+            CacheNode<T> node = nodes[index];
+            if (node == null) {
+                return null;
+            }
+            if (keys[index] == key) {
+                return node;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    // Ключ должен отсутствовать в таблице
+    void insert(CacheNode<T> node) {
+        if ((size + 1) * 4L > slots.nodes.length * 3L) {
+            resize(slots.nodes.length << 1);
+        }
+        place(slots, node);
+        size++;
+    }
+
+    CacheNode<T> remove(long key) {
+        long[] keys = slots.keys;
+        CacheNode<T>[] nodes = slots.nodes;
+        int mask = nodes.length - 1;
+        int index = indexOf(key, mask);
+        while (nodes[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        CacheNode<T> removed = nodes[index];
+        if (removed == null) {
+            return null;
+        }
+        // Обратный сдвиг вместо надгробий: цепочки проб остаются короткими
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (nodes[next] != null) {
+            int home = indexOf(keys[next], mask);
+            boolean reachable = hole <= next
+                ? hole < home && home <= next
+                : hole < home || home <= next;
+            if (!reachable) {
+                keys[hole] = keys[next];
+                nodes[hole] = nodes[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = 0L;
+        nodes[hole] = null;
+        size--;
+        return removed;
+    }
+
+    void forEach(Consumer<CacheNode<T>> action) {
+        for (CacheNode<T> node : slots.nodes) {
+            if (node != null) {
+                action.accept(node);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        slots = new Slots<>(MIN_LENGTH);
+        size = 0;
+    }
+
+    private void resize(int length) {
+        Slots<T> resized = new Slots<>(length);
+        for (CacheNode<T> node : slots.nodes) {
+            if (node != null) {
+                place(resized, node);
+            }
+        }
+        slots = resized;
+    }
+
+    private static <T> void place(Slots<T> target, CacheNode<T> node) {
+        int mask = target.nodes.length - 1;
+        int index = indexOf(node.key, mask);
+        while (target.nodes[index] != null) {
+            index = (index + 1) & mask;
+        }
+        target.keys[index] = node.key;
+        target.nodes[index] = node;
+    }
+
+    private static int indexOf(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
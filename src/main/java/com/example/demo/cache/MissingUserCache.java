@@ -0,0 +1,11 @@
+package com.example.demo.cache;
+
+import org.springframework.stereotype.Component;
+
+// Id, для которых последний поиск в БД ничего не нашёл
+@Component
+public class MissingUserCache extends NegativeCache<Long> {
+    public MissingUserCache(CacheProperties properties) {
+        super(properties.getNegative().getMaximumSize(), properties.getNegative().getTtl());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Ограниченный кэш отрицательных результатов: ключи, которых нет в БД.
+// Запись живёт не дольше ttl, при переполнении вытесняется самая старая.
+public abstract class NegativeCache<K> {
+
+    private final int maximumSize;
+    private final long ttlNanos;
+    // Ключ -> момент истечения по System.nanoTime()
+    private final Map<K, Long> entries;
+
+    protected NegativeCache(int maximumSize, Duration ttl) {
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+                return size() > NegativeCache.this.maximumSize;
+            }
+        };
+    }
+
+    public synchronized boolean contains(K key) {
+        Long expiresAt = entries.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiresAt >= 0) {
+            entries.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized void put(K key) {
+        if (maximumSize <= 0 || ttlNanos <= 0) {
+            return;
+        }
+        // Повторная вставка переносит ключ в конец очереди вытеснения
+        entries.remove(key);
+        entries.put(key, System.nanoTime() + ttlNanos);
+    }
+
+    public synchronized void putAll(Collection<? extends K> keys) {
+        keys.forEach(this::put);
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void removeAll(Collection<? extends K> keys) {
+        keys.forEach(entries::remove);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
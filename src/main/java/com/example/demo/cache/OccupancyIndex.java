@@ -0,0 +1,141 @@
+package com.example.demo.cache;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongFunction;
+import org.springframework.stereotype.Component;
+
+// Занятость пространств по дням: на пространство битовая карта дней от базовой даты
+// (дня запуска) до горизонта. Проверка конфликта — чтение одного бита без обращения к БД.
+// Чтение без блокировок; изменения и загрузка сериализуются, чтобы загрузка из БД,
+// начатая до изменения, не затёрла его устаревшими данными.
+@Component
+public class OccupancyIndex {
+
+    // Около 11 лет вперёд, 512 байт на пространство
+    private static final int HORIZON_DAYS = 4096;
+    private static final int WORDS = HORIZON_DAYS / Long.SIZE;
+
+    private final long baseDay = LocalDate.now().toEpochDay();
+    private final Map<Long, AtomicLongArray> spaces = new ConcurrentHashMap<>();
+    // Растёт при каждом изменении; загрузка применяется, только если он не изменился
+    private long modCount;
+
+    // Даты вне горизонта индекс не хранит, их проверяют по БД
+    public boolean covers(LocalDate date) {
+        long offset = date.toEpochDay() - baseDay;
+        return offset >= 0 && offset < HORIZON_DAYS;
+    }
+
+    public LocalDate getBaseDate() {
+        return LocalDate.ofEpochDay(baseDay);
+    }
+
+    public boolean isLoaded(long spaceId) {
+        return spaces.containsKey(spaceId);
+    }
+
+    // Незагруженное пространство догружается загрузчиком: он возвращает занятые даты
+    // начиная с базовой
+    public boolean isOccupied(long spaceId, LocalDate date,
+                              LongFunction<? extends Collection<LocalDate>> loader) {
+        AtomicLongArray days = bitmap(spaceId, loader);
+        long offset = date.toEpochDay() - baseDay;
+        return (days.get((int) (offset >>> 6)) & (1L << offset)) != 0;
+    }
+
+    // Занятые дни диапазона [from, from + count): бит i соответствует дню from + i.
+    // Слова карты копируются со сдвигом, без обхода по дням. Диапазон лежит внутри горизонта
+    public BitSet occupiedDays(long spaceId, LocalDate from, int count,
+                               LongFunction<? extends Collection<LocalDate>> loader) {
+        AtomicLongArray days = bitmap(spaceId, loader);
+        long start = from.toEpochDay() - baseDay;
+        int shift = (int) (start & 63);
+        long[] words = new long[(count + 63) >>> 6];
+        for (int i = 0; i < words.length; i++) {
+            int word = (int) (start >>> 6) + i;
+            long value = days.get(word) >>> shift;
+            if (shift != 0 && word + 1 < WORDS) {
+                value |= days.get(word + 1) << (64 - shift);
+            }
+            words[i] = value;
+        }
+        BitSet occupied = BitSet.valueOf(words);
+        occupied.clear(count, words.length << 6);
+        return occupied;
+    }
+
+    // Начальная загрузка: ключи — все пространства, значения — их занятые даты
+    public void loadAll(Map<Long, ? extends Collection<LocalDate>> occupied, long stamp) {
+        occupied.forEach((spaceId, dates) -> install(spaceId, toBitmap(dates), stamp));
+    }
+
+    public synchronized long stamp() {
+        return modCount;
+    }
+
+    public synchronized void reserve(long spaceId, LocalDate date) {
+        modCount++;
+        AtomicLongArray days = spaces.get(spaceId);
+        if (days != null && covers(date)) {
+            long offset = date.toEpochDay() - baseDay;
+            days.getAndAccumulate((int) (offset >>> 6), 1L << offset, (a, b) -> a | b);
+        }
+    }
+
+    public synchronized void release(long spaceId, LocalDate date) {
+        modCount++;
+        AtomicLongArray days = spaces.get(spaceId);
+        if (days != null && covers(date)) {
+            long offset = date.toEpochDay() - baseDay;
+            days.getAndAccumulate((int) (offset >>> 6), ~(1L << offset), (a, b) -> a & b);
+        }
+    }
+
+    // Пространство изменилось мимо этого экземпляра: при следующей проверке перечитаем его
+    public synchronized void evict(long spaceId) {
+        modCount++;
+        spaces.remove(spaceId);
+    }
+
+    public synchronized void clear() {
+        modCount++;
+        spaces.clear();
+    }
+
+    public int size() {
+        return spaces.size();
+    }
+
+    private AtomicLongArray bitmap(long spaceId,
+                                   LongFunction<? extends Collection<LocalDate>> loader) {
+        AtomicLongArray days = spaces.get(spaceId);
+        if (days == null) {
+            long stamp = stamp();
+            days = toBitmap(loader.apply(spaceId));
+            install(spaceId, days, stamp);
+        }
+        return days;
+    }
+
+    private synchronized void install(long spaceId, AtomicLongArray days, long stamp) {
+        if (modCount == stamp) {
+            spaces.putIfAbsent(spaceId, days);
+        }
+    }
+
+    private AtomicLongArray toBitmap(Collection<LocalDate> dates) {
+        AtomicLongArray days = new AtomicLongArray(WORDS);
+        for (LocalDate date : dates) {
+            if (covers(date)) {
+                long offset = date.toEpochDay() - baseDay;
+                days.getAndAccumulate((int) (offset >>> 6), 1L << offset, (a, b) -> a | b);
+            }
+        }
+        return days;
+    }
+}
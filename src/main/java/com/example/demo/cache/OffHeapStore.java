@@ -0,0 +1,118 @@
+package com.example.demo.cache;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongPredicate;
+
+// Второй уровень кэша вне кучи: значения, вытесненные из L1, хранятся сериализованными
+// в прямых буферах и не нагружают сборщик мусора. Память поделена на слябы; запись
+// дописывается в текущий сляб, а когда место кончается, самый старый сляб очищается
+// целиком и переиспользуется (FIFO по слябам). На куче остаётся только индекс
+// ключ -> положение записи. Не потокобезопасно, вызывается под блокировкой сегмента.
+final class OffHeapStore<T> {
+
+    private static final int SLAB_COUNT = 16;
+    // Ключ, время записи, длина значения
+    private static final int RECORD_HEADER = Long.BYTES * 2 + Integer.BYTES;
+
+    private final SnapshotCodec<T> codec;
+    private final int slabSize;
+    // Слябы выделяются при первом использовании
+    private final ByteBuffer[] slabs = new ByteBuffer[SLAB_COUNT];
+    private final int[] slabUsed = new int[SLAB_COUNT];
+    private final LongLongTable index = new LongLongTable();
+    private int currentSlab;
+
+    OffHeapStore(long capacityBytes, SnapshotCodec<T> codec) {
+        this.codec = codec;
+        this.slabSize = (int) Math.min(Integer.MAX_VALUE, capacityBytes / SLAB_COUNT);
+    }
+
+    // Запись, не помещающаяся в сляб, не сохраняется
+    void put(long key, T value, long writeTime) {
+        int length = codec.size(value);
+        int recordSize = RECORD_HEADER + length;
+        if (recordSize > slabSize) {
+            index.remove(key);
+            return;
+        }
+        if (slabs[currentSlab] == null) {
+            slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+        } else if (slabUsed[currentSlab] + recordSize > slabSize) {
+            currentSlab = (currentSlab + 1) % SLAB_COUNT;
+            recycle(currentSlab);
+        }
+        ByteBuffer slab = slabs[currentSlab];
+        int offset = slabUsed[currentSlab];
+        slab.putLong(offset, key);
+        slab.putLong(offset + Long.BYTES, writeTime);
+        slab.putInt(offset + Long.BYTES * 2, length);
+        codec.write(value, slab.slice(offset + RECORD_HEADER, length));
+        slabUsed[currentSlab] = offset + recordSize;
+        index.put(key, location(currentSlab, offset));
+    }
+
+    // Есть ли неистёкшая запись; значение не декодируется
+    boolean contains(long key, LongPredicate expired) {
+        long location = index.get(key);
+        if (location == LongLongTable.EMPTY) {
+            return false;
+        }
+        int offset = (int) location;
+        long writeTime = slabs[(int) (location >>> 32)].getLong(offset + Long.BYTES);
+        return !expired.test(writeTime);
+    }
+
+    // Извлекает запись для переноса в L1; null, если её нет
+    CacheNode<T> take(long key) {
+        long location = index.remove(key);
+        if (location == LongLongTable.EMPTY) {
+            return null;
+        }
+        ByteBuffer slab = slabs[(int) (location >>> 32)];
+        int offset = (int) location;
+        long writeTime = slab.getLong(offset + Long.BYTES);
+        int length = slab.getInt(offset + Long.BYTES * 2);
+        T value = codec.read(slab.slice(offset + RECORD_HEADER, length));
+        return new CacheNode<>(key, value, writeTime);
+    }
+
+    // Место освобождается при переиспользовании сляба
+    void remove(long key) {
+        index.remove(key);
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    void clear() {
+        index.clear();
+        for (int i = 0; i < SLAB_COUNT; i++) {
+            slabUsed[i] = 0;
+        }
+        currentSlab = 0;
+    }
+
+    // Убирает из индекса записи сляба, которые ещё не были перезаписаны или извлечены
+    private void recycle(int slabIndex) {
+        ByteBuffer slab = slabs[slabIndex];
+        if (slab == null) {
+            slabs[slabIndex] = ByteBuffer.allocateDirect(slabSize);
+            return;
+        }
+        int offset = 0;
+        int used = slabUsed[slabIndex];
+        while (offset < used) {
+            long key = slab.getLong(offset);
+            if (index.get(key) == location(slabIndex, offset)) {
+                index.remove(key);
+            }
+            offset += RECORD_HEADER + slab.getInt(offset + Long.BYTES * 2);
+        }
+        slabUsed[slabIndex] = 0;
+    }
+
+    private static long location(int slabIndex, int offset) {
+        return ((long) slabIndex << 32) | offset;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.demo.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+// Инвалидации через LISTEN/NOTIFY PostgreSQL. Полезная нагрузка: "origin;cache;id,id,...".
+// Слушатель держит своё соединение вне пула; после его потери сообщения могли пропасть,
+// поэтому при переподключении подписчики сбрасывают кэши.
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.type", havingValue = "postgres")
+@RequiredArgsConstructor
+public class PostgresInvalidationBus implements CacheInvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresInvalidationBus.class);
+
+    private static final String CHANNEL = "cache_invalidation";
+    // Полезная нагрузка NOTIFY ограничена 8000 байтами
+    private static final int MAX_KEYS_PER_NOTIFY = 300;
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    // Драйвер нужен только во время выполнения, поэтому его API вызывается через отражение
+    private static final Class<?> PG_CONNECTION = driverClass("org.postgresql.PGConnection");
+    private static final Method GET_NOTIFICATIONS = driverMethod(PG_CONNECTION,
+        "getNotifications", int.class);
+    private static final Method GET_PARAMETER = driverMethod(
+        driverClass("org.postgresql.PGNotification"), "getParameter");
+
+    private final DataSource dataSource;
+    private final DataSourceProperties dataSourceProperties;
+    private final List<CacheInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::listen, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        listenerThread.interrupt();
+    }
+
+    // Соединение текущей транзакции: NOTIFY доставляется только при её коммите,
+    // при откате ничего не уходит. Вне транзакции — отдельное соединение с автокоммитом
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        long[] keys = invalidation.keys();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            for (int from = 0; from < keys.length; from += MAX_KEYS_PER_NOTIFY) {
+                long[] chunk = Arrays.copyOfRange(keys, from,
+                    Math.min(from + MAX_KEYS_PER_NOTIFY, keys.length));
+                statement.setString(1, CHANNEL);
+                statement.setString(2,
+                    encode(invalidation.origin(), invalidation.cacheName(), chunk));
+                statement.execute();
+            }
+        } catch (SQLException e) {
+            // После ошибки PostgreSQL всё равно откатит транзакцию при коммите
+            throw new IllegalStateException(
+                "Failed to publish cache invalidation for " + invalidation.cacheName(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    @Override
+    public void subscribe(CacheInvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    private void listen() {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = openListenerConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (connectedBefore) {
+                    listeners.forEach(CacheInvalidationListener::onReset);
+                }
+                connectedBefore = true;
+                Object pgConnection = connection.unwrap(PG_CONNECTION);
+                while (running) {
+                    Object[] notifications = (Object[]) invoke(GET_NOTIFICATIONS, pgConnection,
+                        POLL_TIMEOUT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (Object notification : notifications) {
+                        dispatch((String) invoke(GET_PARAMETER, notification));
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Cache invalidation listener lost its connection, reconnecting", e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Соединение слушателя живёт всё время работы приложения, поэтому не берётся из пула
+    private Connection openListenerConnection() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+            dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    private static Class<?> driverClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("PostgreSQL driver not found: " + name, e);
+        }
+    }
+
+    private static Method driverMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Unsupported PostgreSQL driver: " + name, e);
+        }
+    }
+
+    // SQLException драйвера пробрасывается как есть, чтобы цикл слушателя переподключился
+    private static Object invoke(Method method, Object target, Object... args)
+        throws SQLException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new IllegalStateException("PostgreSQL driver call failed: " + method.getName(),
+                e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("PostgreSQL driver call failed: " + method.getName(),
+                e);
+        }
+    }
+
+    private void dispatch(String payload) {
+        String[] parts = payload.split(";", 3);
+        if (parts.length != 3) {
+            logger.warn("Malformed cache invalidation payload: " + payload);
+            return;
+        }
+        long[] keys = parts[2].isEmpty()
+            ? new long[0]
+            : Arrays.stream(parts[2].split(",")).mapToLong(Long::parseLong).toArray();
+        CacheInvalidation invalidation = new CacheInvalidation(parts[0], parts[1], keys);
+        listeners.forEach(listener -> listener.onInvalidation(invalidation));
+    }
+
+    private static String encode(String origin, String cacheName, long[] keys) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (long key : keys) {
+            joiner.add(Long.toString(key));
+        }
+        return origin + ";" + cacheName + ";" + joiner;
+    }
+}
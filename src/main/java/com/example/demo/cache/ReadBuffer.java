@@ -0,0 +1,33 @@
+package com.example.demo.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Кольцевой буфер обращений: чтения записываются без блокировки и применяются к политике пачкой.
+// При переполнении старые записи перезаписываются — частоты становятся приблизительными.
+final class ReadBuffer<T> {
+
+    private static final int SIZE = 64;
+    private static final int MASK = SIZE - 1;
+    private static final int DRAIN_THRESHOLD = 32;
+
+    private final AtomicReferenceArray<CacheNode<T>> slots = new AtomicReferenceArray<>(SIZE);
+    private final AtomicLong writes = new AtomicLong();
+
+    // Возвращает true, когда накопилось достаточно обращений и буфер пора применить
+    boolean offer(CacheNode<T> node) {
+        long index = writes.getAndIncrement();
+        slots.lazySet((int) (index & MASK), node);
+        return (index & (DRAIN_THRESHOLD - 1)) == DRAIN_THRESHOLD - 1;
+    }
+
+    void drainTo(Consumer<CacheNode<T>> consumer) {
+        for (int i = 0; i < SIZE; i++) {
+            CacheNode<T> node = slots.getAndSet(i, null);
+            if (node != null) {
+                consumer.accept(node);
+            }
+        }
+    }
+}
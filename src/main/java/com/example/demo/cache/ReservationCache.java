@@ -1,11 +1,16 @@
 package com.example.demo.cache;
 
-import com.example.demo.entity.Reservation;
 import org.springframework.stereotype.Component;
 
 @Component
-public class ReservationCache extends LfuCache<Reservation> {
-    public ReservationCache() {
-        super(100);
+public class ReservationCache extends LfuCache<ReservationSnapshot> {
+    public ReservationCache(CacheProperties properties, ReservationSnapshotCodec codec,
+                            CacheRefreshExecutor refreshExecutor) {
+        super(properties.getReservations(), ReservationCache::weigh, codec, refreshExecutor);
+    }
+
+    // Примерный размер снимка в байтах
+    private static int weigh(ReservationSnapshot reservation) {
+        return 64 + Weigher.weightOf(reservation.userIds());
     }
 }
@@ -0,0 +1,11 @@
+package com.example.demo.cache;
+
+import java.time.LocalDate;
+
+// Неизменяемый снимок бронирования для кэша
+public record ReservationSnapshot(
+    long id,
+    LocalDate date,
+    long coworkingSpaceId,
+    long[] userIds) {
+}
@@ -0,0 +1,33 @@
+package com.example.demo.cache;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ReservationSnapshotCodec implements SnapshotCodec<ReservationSnapshot> {
+
+    @Override
+    public int size(ReservationSnapshot reservation) {
+        // id, день эпохи, id пространства
+        return 3 * Long.BYTES + SnapshotCodec.sizeOf(reservation.userIds());
+    }
+
+    @Override
+    public void write(ReservationSnapshot reservation, ByteBuffer buffer) {
+        buffer.putLong(reservation.id());
+        buffer.putLong(reservation.date().toEpochDay());
+        buffer.putLong(reservation.coworkingSpaceId());
+        SnapshotCodec.putLongs(buffer, reservation.userIds());
+    }
+
+    @Override
+    public ReservationSnapshot read(ByteBuffer buffer) {
+        return new ReservationSnapshot(
+            buffer.getLong(),
+            LocalDate.ofEpochDay(buffer.getLong()),
+            buffer.getLong(),
+            SnapshotCodec.getLongs(buffer)
+        );
+    }
+}
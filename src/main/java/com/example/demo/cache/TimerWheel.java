@@ -0,0 +1,91 @@
+package com.example.demo.cache;
+
+import java.util.function.Consumer;
+
+// Хешированное колесо таймеров для истечения TTL: запись кладётся в корзину своего тика,
+// при продвижении обходятся только корзины прошедших тиков, а не весь кэш.
+// Не потокобезопасно, вызывается под блокировкой сегмента.
+final class TimerWheel<T> {
+
+    private static final int BUCKETS = 64;
+    private static final int MASK = BUCKETS - 1;
+
+    private final long tickNanos;
+    private final CacheNode<T>[] buckets;
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long expireAfterNanos, long now) {
+        // Один оборот колеса покрывает весь TTL, поэтому корзины не нужно обходить по кругу
+        this.tickNanos = Math.max(1L, (expireAfterNanos + BUCKETS - 2) / (BUCKETS - 1));
+        this.buckets = new CacheNode[BUCKETS];
+        this.currentTick = now / tickNanos;
+    }
+
+    void schedule(CacheNode<T> node, long expiresAt) {
+        cancel(node);
+        // Округление вверх: к моменту обработки корзины все её записи уже истекли
+        long tick = Math.max((expiresAt + tickNanos - 1) / tickNanos, currentTick + 1);
+        int index = (int) (tick & MASK);
+        CacheNode<T> head = buckets[index];
+        node.timerBucket = index;
+        node.timerPrev = null;
+        node.timerNext = head;
+        if (head != null) {
+            head.timerPrev = node;
+        }
+        buckets[index] = node;
+    }
+
+    void cancel(CacheNode<T> node) {
+        if (node.timerBucket < 0) {
+            return;
+        }
+        if (node.timerPrev == null) {
+            buckets[node.timerBucket] = node.timerNext;
+        } else {
+            node.timerPrev.timerNext = node.timerNext;
+        }
+        if (node.timerNext != null) {
+            node.timerNext.timerPrev = node.timerPrev;
+        }
+        node.timerPrev = null;
+        node.timerNext = null;
+        node.timerBucket = -1;
+    }
+
+    // Снимает с колеса и передаёт в expired все записи тиков, прошедших с прошлого вызова
+    void advance(long now, long expireAfterNanos, Consumer<CacheNode<T>> expired) {
+        long targetTick = now / tickNanos;
+        long ticks = Math.min(targetTick - currentTick, BUCKETS);
+        for (long i = 1; i <= ticks; i++) {
+            int index = (int) ((currentTick + i) & MASK);
+            CacheNode<T> node = buckets[index];
+            while (node != null) {
+                CacheNode<T> next = node.timerNext;
+                if (now - node.writeTime >= expireAfterNanos) {
+                    cancel(node);
+                    expired.accept(node);
+                }
+                node = next;
+            }
+        }
+        if (targetTick > currentTick) {
+            currentTick = targetTick;
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < BUCKETS; i++) {
+            CacheNode<T> node = buckets[i];
+            while (node != null) {
+                CacheNode<T> next = node.timerNext;
+                node.timerPrev = null;
+                node.timerNext = null;
+                node.timerBucket = -1;
+                node = next;
+            }
+            buckets[i] = null;
+        }
+    }
+}
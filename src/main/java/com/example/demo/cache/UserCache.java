@@ -1,11 +1,18 @@
 package com.example.demo.cache;
 
-import com.example.demo.entity.User;
 import org.springframework.stereotype.Component;
 
 @Component
-public class UserCache extends LfuCache<User> {
-    public UserCache() {
-        super(100);
+public class UserCache extends LfuCache<UserSnapshot> {
+    public UserCache(CacheProperties properties, UserSnapshotCodec codec,
+                     CacheRefreshExecutor refreshExecutor) {
+        super(properties.getUsers(), UserCache::weigh, codec, refreshExecutor);
     }
-}
\ No newline at end of file
+
+    // Примерный размер снимка в байтах
+    private static int weigh(UserSnapshot user) {
+        return 48 + Weigher.weightOf(user.firstName()) + Weigher.weightOf(user.middleName())
+            + Weigher.weightOf(user.lastName()) + Weigher.weightOf(user.email())
+            + Weigher.weightOf(user.reservationIds());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.cache;
+
+// Неизменяемый снимок пользователя для кэша: без пароля и без ссылок на граф сущностей
+public record UserSnapshot(
+    long id,
+    String firstName,
+    String middleName,
+    String lastName,
+    String email,
+    long[] reservationIds) {
+}
@@ -0,0 +1,40 @@
+package com.example.demo.cache;
+
+import java.nio.ByteBuffer;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserSnapshotCodec implements SnapshotCodec<UserSnapshot> {
+
+    @Override
+    public int size(UserSnapshot user) {
+        return Long.BYTES
+            + SnapshotCodec.sizeOf(user.firstName())
+            + SnapshotCodec.sizeOf(user.middleName())
+            + SnapshotCodec.sizeOf(user.lastName())
+            + SnapshotCodec.sizeOf(user.email())
+            + SnapshotCodec.sizeOf(user.reservationIds());
+    }
+
+    @Override
+    public void write(UserSnapshot user, ByteBuffer buffer) {
+        buffer.putLong(user.id());
+        SnapshotCodec.putString(buffer, user.firstName());
+        SnapshotCodec.putString(buffer, user.middleName());
+        SnapshotCodec.putString(buffer, user.lastName());
+        SnapshotCodec.putString(buffer, user.email());
+        SnapshotCodec.putLongs(buffer, user.reservationIds());
+    }
+
+    @Override
+    public UserSnapshot read(ByteBuffer buffer) {
+        return new UserSnapshot(
+            buffer.getLong(),
+            SnapshotCodec.getString(buffer),
+            SnapshotCodec.getString(buffer),
+            SnapshotCodec.getString(buffer),
+            SnapshotCodec.getString(buffer),
+            SnapshotCodec.getLongs(buffer)
+        );
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.cache;
+
+import org.springframework.stereotype.Component;
+
+// Результат запроса «пользователи с бронированиями на дату»: ключ — epochDay,
+// значение — отсортированные id пользователей; сами пользователи берутся из UserCache
+@Component
+public class UsersByDateCache extends LfuCache<long[]> {
+    public UsersByDateCache(CacheProperties properties, CacheRefreshExecutor refreshExecutor) {
+        super(properties.getUsersByDate(), Weigher::weightOf, null, refreshExecutor);
+    }
+}
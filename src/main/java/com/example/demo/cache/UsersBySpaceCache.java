@@ -0,0 +1,12 @@
+package com.example.demo.cache;
+
+import org.springframework.stereotype.Component;
+
+// Результат запроса «пользователи пространства»: ключ — id пространства,
+// значение — отсортированные id пользователей; сами пользователи берутся из UserCache
+@Component
+public class UsersBySpaceCache extends LfuCache<long[]> {
+    public UsersBySpaceCache(CacheProperties properties, CacheRefreshExecutor refreshExecutor) {
+        super(properties.getUsersBySpace(), Weigher::weightOf, null, refreshExecutor);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.cache;
+
+// Оценка веса значения для кэшей, ограниченных суммарным весом, а не числом записей
+@FunctionalInterface
+public interface Weigher<T> {
+
+    int weigh(T value);
+
+    // Примерный размер строки в байтах: заголовок объекта и массив символов
+    static int weightOf(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    static int weightOf(long[] ids) {
+        return ids == null ? 0 : 16 + 8 * ids.length;
+    }
+}
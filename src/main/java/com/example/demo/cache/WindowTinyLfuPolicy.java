@@ -0,0 +1,201 @@
+package com.example.demo.cache;
+
+// W-TinyLFU: новые записи попадают в маленькое LRU-окно, вытесненные из окна кандидаты
+// допускаются в основную область (probation + protected) только если частотный скетч
+// оценивает их выше, чем жертву основной области. Размеры областей считаются в весе записей.
+final class WindowTinyLfuPolicy<T> implements EvictionPolicy<T> {
+
+    static final byte WINDOW = 1;
+    static final byte PROBATION = 2;
+    static final byte PROTECTED = 3;
+
+    // Скетч ограничен, чтобы кэш с весом в байтах не выделял таблицу на миллионы счётчиков
+    private static final int MAX_SKETCH_CAPACITY = 1 << 16;
+
+    private final FrequencySketch sketch;
+    private long windowMax;
+    private long protectedMax;
+
+    private final AccessQueue<T> window = new AccessQueue<>(WINDOW);
+    private final AccessQueue<T> probation = new AccessQueue<>(PROBATION);
+    private final AccessQueue<T> protectedQueue = new AccessQueue<>(PROTECTED);
+
+    WindowTinyLfuPolicy(long capacity) {
+        this.sketch = new FrequencySketch((int) Math.min(capacity, MAX_SKETCH_CAPACITY));
+        resize(capacity);
+    }
+
+    @Override
+    public void add(CacheNode<T> node) {
+        sketch.increment(node.key);
+        window.append(node);
+        // Пока кэш не заполнен, лишнее из окна переходит в основную область без проверки
+        shrinkWindow();
+    }
+
+    @Override
+    public void recordAccess(CacheNode<T> node) {
+        switch (node.queue) {
+            case WINDOW -> {
+                sketch.increment(node.key);
+                window.moveToTail(node);
+            }
+            case PROBATION -> {
+                sketch.increment(node.key);
+                probation.unlink(node);
+                protectedQueue.append(node);
+                shrinkProtected();
+            }
+            case PROTECTED -> {
+                sketch.increment(node.key);
+                protectedQueue.moveToTail(node);
+            }
+            default -> {
+                // запись уже удалена, обращение пришло из буфера с опозданием
+            }
+        }
+    }
+
+    @Override
+    public void remove(CacheNode<T> node) {
+        switch (node.queue) {
+            case WINDOW -> window.unlink(node);
+            case PROBATION -> probation.unlink(node);
+            case PROTECTED -> protectedQueue.unlink(node);
+            default -> {
+                // уже удалена
+            }
+        }
+    }
+
+    @Override
+    public void updateWeight(CacheNode<T> node, int weight) {
+        switch (node.queue) {
+            case WINDOW -> window.weight += weight - node.weight;
+            case PROBATION -> probation.weight += weight - node.weight;
+            case PROTECTED -> protectedQueue.weight += weight - node.weight;
+            default -> {
+                // запись не в очередях
+            }
+        }
+        node.weight = weight;
+    }
+
+    @Override
+    public void setCapacity(long capacity) {
+        resize(capacity);
+        shrinkWindow();
+        shrinkProtected();
+    }
+
+    @Override
+    public CacheNode<T> victim() {
+        CacheNode<T> mainVictim = probation.head != null ? probation.head : protectedQueue.head;
+        if (mainVictim == null) {
+            return window.head;
+        }
+        if (window.weight < windowMax || window.head == null) {
+            return mainVictim;
+        }
+        // Кандидат из окна против жертвы основной области: проигравший вытесняется
+        CacheNode<T> candidate = window.head;
+        if (sketch.frequency(candidate.key) > sketch.frequency(mainVictim.key)) {
+            window.unlink(candidate);
+            probation.append(candidate);
+            return mainVictim;
+        }
+        return candidate;
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        sketch.clear();
+    }
+
+    private void resize(long capacity) {
+        this.windowMax = Math.max(1, capacity / 100);
+        this.protectedMax = (capacity - windowMax) * 80 / 100;
+    }
+
+    private void shrinkWindow() {
+        while (window.weight > windowMax) {
+            CacheNode<T> head = window.head;
+            window.unlink(head);
+            probation.append(head);
+        }
+    }
+
+    private void shrinkProtected() {
+        while (protectedQueue.weight > protectedMax) {
+            CacheNode<T> demoted = protectedQueue.head;
+            protectedQueue.unlink(demoted);
+            probation.append(demoted);
+        }
+    }
+
+    // Интрузивная LRU-очередь: голова — самая давняя запись
+    private static final class AccessQueue<T> {
+        private final byte type;
+        CacheNode<T> head;
+        CacheNode<T> tail;
+        long weight;
+
+        AccessQueue(byte type) {
+            this.type = type;
+        }
+
+        void append(CacheNode<T> node) {
+            node.queue = type;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void unlink(CacheNode<T> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.queue = 0;
+            weight -= node.weight;
+        }
+
+        void moveToTail(CacheNode<T> node) {
+            if (tail != node) {
+                unlink(node);
+                append(node);
+            }
+        }
+
+        void clear() {
+            CacheNode<T> node = head;
+            while (node != null) {
+                CacheNode<T> next = node.next;
+                node.prev = null;
+                node.next = null;
+                node.queue = 0;
+                node = next;
+            }
+            head = null;
+            tail = null;
+            weight = 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.CacheInfoDto;
+import com.example.demo.dto.CacheStatsDto;
+import com.example.demo.service.CacheService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Кэши", description = "Администрирование кэшей сущностей")
+@RestController
+@RequestMapping("/api/cache")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final CacheService cacheService;
+
+    @Operation(summary = "Получить размеры и ограничения всех кэшей")
+    @GetMapping
+    public ResponseEntity<List<CacheInfoDto>> getCaches() {
+        return ResponseEntity.ok(cacheService.getCaches());
+    }
+
+    @Operation(summary = "Получить статистику попаданий, промахов и вытеснений всех кэшей")
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheStatsDto>> getStats() {
+        return ResponseEntity.ok(cacheService.getStats());
+    }
+
+    @Operation(summary = "Получить размер и ограничение кэша по имени")
+    @GetMapping("/{name}")
+    public ResponseEntity<CacheInfoDto> getCache(@PathVariable String name) {
+        return ResponseEntity.ok(cacheService.getCache(name));
+    }
+
+    @Operation(summary = "Изменить ограничение кэша без перезапуска")
+    @PutMapping("/{name}/maximum")
+    public ResponseEntity<CacheInfoDto> resize(@PathVariable String name,
+                                               @RequestParam long maximum) {
+        return ResponseEntity.ok(cacheService.resize(name, maximum));
+    }
+}
@@ -1,17 +1,21 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.CoworkingSpaceDto;
+import com.example.demo.dto.PageDto;
 import com.example.demo.exception.BadRequestException;
 import com.example.demo.exception.NotFoundException;
 import com.example.demo.service.CoworkingSpaceService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.InputStream;
 
 import java.util.HashSet;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -20,7 +24,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "Пространства", description = "Операции с коворкинг-пространствами")
 @RestController
@@ -52,16 +58,40 @@ public class CoworkingSpaceController {
         return ResponseEntity.ok(space);
     }
 
-    @Operation(summary = "Получить все коворкинг-пространства")
-    @GetMapping
-    public ResponseEntity<List<CoworkingSpaceDto>> getAllSpaces() {
-        List<CoworkingSpaceDto> spaces = spaceService.getAllSpaces();
+    @Operation(summary = "Получить коворкинг-пространства по списку ID")
+    @GetMapping("/batch")
+    public ResponseEntity<List<CoworkingSpaceDto>> getSpacesByIds(@RequestParam List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("ID list cannot be empty");
+        }
+        if (ids.size() > 1000) {
+            throw new BadRequestException("No more than 1000 IDs per request");
+        }
+        if (ids.stream().anyMatch(id -> id == null || id <= 0)) {
+            throw new BadRequestException("Invalid space ID in the list");
+        }
+        List<CoworkingSpaceDto> spaces = spaceService.getSpacesByIds(ids);
         if (spaces.isEmpty()) {
-            throw new NotFoundException("No spaces found");
+            throw new NotFoundException("No spaces found with IDs: " + ids);
         }
         return ResponseEntity.ok(spaces);
     }
 
+    @Operation(summary = "Получить коворкинг-пространства постранично")
+    @GetMapping
+    public ResponseEntity<PageDto<CoworkingSpaceDto>> getSpaces(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "50") int limit) {
+        if (limit <= 0 || limit > 1000) {
+            throw new BadRequestException("Limit must be between 1 and 1000");
+        }
+        PageDto<CoworkingSpaceDto> page = spaceService.getSpacesPage(cursor, limit);
+        if (cursor == null && page.getItems().isEmpty()) {
+            throw new NotFoundException("No spaces found");
+        }
+        return ResponseEntity.ok(page);
+    }
+
     @Operation(summary = "Обновить коворкинг-пространство по ID")
     @PutMapping("/{id}")
     public ResponseEntity<CoworkingSpaceDto> updateSpace(
@@ -111,4 +141,29 @@ public class CoworkingSpaceController {
         List<CoworkingSpaceDto> createdSpaces = spaceService.createSpacesBulk(dtos);
         return ResponseEntity.status(HttpStatus.CREATED).body(createdSpaces);
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Импортировать пространства из NDJSON потоком")
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importSpaces(InputStream body) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(out -> spaceService.importSpaces(body, out));
+    }
+
+    @Operation(summary = "Выгрузить все коворкинг-пространства в JSON или CSV")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportSpaces(
+        @RequestParam(defaultValue = "json") String format) {
+        if (!format.equals("json") && !format.equals("csv")) {
+            throw new BadRequestException("Format must be 'json' or 'csv'");
+        }
+        return ResponseEntity.ok()
+            .contentType(format.equals("csv")
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"spaces." + format + "\"")
+            .body(out -> spaceService.exportSpaces(format, out));
+    }
+}
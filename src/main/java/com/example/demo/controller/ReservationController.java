@@ -2,15 +2,20 @@ package com.example.demo.controller;
 
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Operation;
+import com.example.demo.dto.AvailabilityDto;
+import com.example.demo.dto.PageDto;
 import com.example.demo.dto.ReservationDto;
 import com.example.demo.exception.BadRequestException;
 import com.example.demo.exception.NotFoundException;
 import com.example.demo.service.ReservationService;
 import jakarta.validation.Valid;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,7 +24,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "Бронирования", description = "Операции с бронированиями коворкинг-пространств")
 @RestController
@@ -55,16 +62,72 @@ public class ReservationController {
         return ResponseEntity.ok(reservation);
     }
 
-    @Operation(summary = "Получить все бронирования")
-    @GetMapping
-    public ResponseEntity<List<ReservationDto>> getAllReservations() {
-        List<ReservationDto> reservations = reservationService.getAllReservations();
+    @Operation(summary = "Получить бронирования по списку ID")
+    @GetMapping("/batch")
+    public ResponseEntity<List<ReservationDto>> getReservationsByIds(@RequestParam List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("ID list cannot be empty");
+        }
+        if (ids.size() > 1000) {
+            throw new BadRequestException("No more than 1000 IDs per request");
+        }
+        if (ids.stream().anyMatch(id -> id == null || id <= 0)) {
+            throw new BadRequestException("Invalid reservation ID in the list");
+        }
+        List<ReservationDto> reservations = reservationService.getReservationsByIds(ids);
         if (reservations.isEmpty()) {
-            throw new NotFoundException("No reservations found");
+            throw new NotFoundException("No reservations found with IDs: " + ids);
         }
         return ResponseEntity.ok(reservations);
     }
 
+    @Operation(summary = "Получить свободные дни пространств за период")
+    @GetMapping("/availability")
+    public ResponseEntity<AvailabilityDto> getAvailability(
+        @RequestParam LocalDate from,
+        @RequestParam LocalDate to,
+        @RequestParam(required = false) List<Long> spaceIds,
+        @RequestParam(defaultValue = "10") int limit) {
+        if (from.isBefore(LocalDate.now())) {
+            throw new BadRequestException("Start date cannot be in the past");
+        }
+        if (to.isBefore(from)) {
+            throw new BadRequestException("End date cannot be before start date");
+        }
+        if (to.isAfter(from.plusDays(365))) {
+            throw new BadRequestException("Date range cannot exceed 366 days");
+        }
+        if (spaceIds != null && spaceIds.size() > 1000) {
+            throw new BadRequestException("No more than 1000 IDs per request");
+        }
+        if (spaceIds != null && spaceIds.stream().anyMatch(id -> id == null || id <= 0)) {
+            throw new BadRequestException("Invalid coworking space ID in the list");
+        }
+        if (limit < 0 || limit > 1000) {
+            throw new BadRequestException("Limit must be between 0 and 1000");
+        }
+        return ResponseEntity.ok(reservationService.getAvailability(from, to, spaceIds, limit));
+    }
+
+    @Operation(summary = "Получить бронирования постранично, по id или по дате")
+    @GetMapping
+    public ResponseEntity<PageDto<ReservationDto>> getReservations(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "50") int limit,
+        @RequestParam(defaultValue = "id") String sort) {
+        if (limit <= 0 || limit > 1000) {
+            throw new BadRequestException("Limit must be between 1 and 1000");
+        }
+        if (!sort.equals("id") && !sort.equals("date")) {
+            throw new BadRequestException("Sort must be 'id' or 'date'");
+        }
+        PageDto<ReservationDto> page = reservationService.getReservationsPage(cursor, limit, sort);
+        if (cursor == null && page.getItems().isEmpty()) {
+            throw new NotFoundException("No reservations found");
+        }
+        return ResponseEntity.ok(page);
+    }
+
     @Operation(summary = "Обновить бронирование по ID")
     @PutMapping("/{id}")
     public ResponseEntity<ReservationDto> updateReservation(
@@ -85,6 +148,40 @@ public class ReservationController {
         return ResponseEntity.ok(updatedReservation);
     }
 
+    @Operation(summary = "Добавить участников в бронирование")
+    @PostMapping("/{id}/users")
+    public ResponseEntity<ReservationDto> addAttendees(
+        @PathVariable Long id,
+        @RequestBody List<Long> userIds) {
+        validateAttendees(userIds);
+        ReservationDto reservation = reservationService.addAttendees(id, userIds)
+            .orElseThrow(() -> new NotFoundException("Reservation not found with ID: " + id));
+        return ResponseEntity.ok(reservation);
+    }
+
+    @Operation(summary = "Удалить участников из бронирования")
+    @DeleteMapping("/{id}/users")
+    public ResponseEntity<ReservationDto> removeAttendees(
+        @PathVariable Long id,
+        @RequestParam List<Long> userIds) {
+        validateAttendees(userIds);
+        ReservationDto reservation = reservationService.removeAttendees(id, userIds)
+            .orElseThrow(() -> new NotFoundException("Reservation not found with ID: " + id));
+        return ResponseEntity.ok(reservation);
+    }
+
+    private void validateAttendees(List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new BadRequestException("User ID list cannot be empty");
+        }
+        if (userIds.size() > 1000) {
+            throw new BadRequestException("No more than 1000 IDs per request");
+        }
+        if (userIds.stream().anyMatch(userId -> userId == null || userId <= 0)) {
+            throw new BadRequestException("Invalid user ID in the list");
+        }
+    }
+
     @Operation(summary = "Удалить бронирование по ID")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteReservation(@PathVariable Long id) {
@@ -121,4 +218,29 @@ public class ReservationController {
         List<ReservationDto> createdReservations = reservationService.createReservationsBulk(dtos);
         return ResponseEntity.status(HttpStatus.CREATED).body(createdReservations);
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Импортировать бронирования из NDJSON потоком")
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importReservations(InputStream body) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(out -> reservationService.importReservations(body, out));
+    }
+
+    @Operation(summary = "Выгрузить все бронирования в JSON или CSV")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportReservations(
+        @RequestParam(defaultValue = "json") String format) {
+        if (!format.equals("json") && !format.equals("csv")) {
+            throw new BadRequestException("Format must be 'json' or 'csv'");
+        }
+        return ResponseEntity.ok()
+            .contentType(format.equals("csv")
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"reservations." + format + "\"")
+            .body(out -> reservationService.exportReservations(format, out));
+    }
+}
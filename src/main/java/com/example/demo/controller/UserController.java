@@ -1,5 +1,6 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.PageDto;
 import com.example.demo.dto.UserDto;
 import com.example.demo.exception.BadRequestException;
 import com.example.demo.exception.NotFoundException;
@@ -7,11 +8,14 @@ import com.example.demo.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +26,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "Пользователи", description = "Операции с пользователями")
 @RestController
@@ -53,16 +58,40 @@ public class UserController {
         return ResponseEntity.ok(user);
     }
 
-    @Operation(summary = "Получить всех пользователей")
-    @GetMapping
-    public ResponseEntity<List<UserDto>> getAllUsers() {
-        List<UserDto> users = userService.getAllUsers();
+    @Operation(summary = "Получить пользователей по списку ID")
+    @GetMapping("/batch")
+    public ResponseEntity<List<UserDto>> getUsersByIds(@RequestParam List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new BadRequestException("ID list cannot be empty");
+        }
+        if (ids.size() > 1000) {
+            throw new BadRequestException("No more than 1000 IDs per request");
+        }
+        if (ids.stream().anyMatch(id -> id == null || id <= 0)) {
+            throw new BadRequestException("Invalid user ID in the list");
+        }
+        List<UserDto> users = userService.getUsersByIds(ids);
         if (users.isEmpty()) {
-            throw new NotFoundException("No users found");
+            throw new NotFoundException("No users found with IDs: " + ids);
         }
         return ResponseEntity.ok(users);
     }
 
+    @Operation(summary = "Получить пользователей постранично (курсор из nextCursor)")
+    @GetMapping
+    public ResponseEntity<PageDto<UserDto>> getUsers(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "50") int limit) {
+        if (limit <= 0 || limit > 1000) {
+            throw new BadRequestException("Limit must be between 1 and 1000");
+        }
+        PageDto<UserDto> page = userService.getUsersPage(cursor, limit);
+        if (cursor == null && page.getItems().isEmpty()) {
+            throw new NotFoundException("No users found");
+        }
+        return ResponseEntity.ok(page);
+    }
+
     @Operation(summary = "Обновить данные пользователя")
     @PutMapping("/{id}")
     public ResponseEntity<UserDto> updateUser(
@@ -140,4 +169,32 @@ public class UserController {
         List<UserDto> createdUsers = userService.createUsersBulk(dtos);
         return ResponseEntity.status(HttpStatus.CREATED).body(createdUsers);
     }
-}
\ No newline at end of file
+
+    // Каждая строка тела — отдельный объект; ответ — результат по каждой строке (тоже NDJSON),
+    // отдаётся по мере обработки пачек, так что вход любого размера не держится в памяти
+    @Operation(summary = "Импортировать пользователей из NDJSON потоком")
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importUsers(InputStream body) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(out -> userService.importUsers(body, out));
+    }
+
+    // Ответ пишется по мере чтения из БД, целиком в памяти не собирается
+    @Operation(summary = "Выгрузить всех пользователей в JSON или CSV")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+        @RequestParam(defaultValue = "json") String format) {
+        if (!format.equals("json") && !format.equals("csv")) {
+            throw new BadRequestException("Format must be 'json' or 'csv'");
+        }
+        return ResponseEntity.ok()
+            .contentType(format.equals("csv")
+                ? MediaType.parseMediaType("text/csv")
+                : MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"users." + format + "\"")
+            .body(out -> userService.exportUsers(format, out));
+    }
+}
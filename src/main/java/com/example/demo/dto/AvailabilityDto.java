@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class AvailabilityDto {
+    private LocalDate from;
+    private LocalDate to;
+    private List<SpaceAvailabilityDto> spaces;
+    // Первые по id пространства, свободные на весь диапазон
+    private List<Long> fullyFreeSpaceIds;
+}
@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CacheInfoDto {
+    private String name;
+    // true — ограничение по суммарному весу, false — по числу записей
+    private boolean weighted;
+    private long maximum;
+    private long weightedSize;
+    private long estimatedSize;
+}
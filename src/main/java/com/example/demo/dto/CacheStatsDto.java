@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CacheStatsDto {
+    private String name;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long putCount;
+    private long evictionCount;
+    private long loadSuccessCount;
+    private long loadFailureCount;
+    private long totalLoadTimeNanos;
+    private double averageLoadPenaltyNanos;
+    private long offHeapHitCount;
+    private long estimatedSize;
+    private long weightedSize;
+    private long offHeapSize;
+}
@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ImportResultDto {
+    // Номер строки во входном потоке, начиная с 1
+    private long line;
+    private boolean created;
+    private Long id;
+    private String error;
+}
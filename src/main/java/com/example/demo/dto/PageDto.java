@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class PageDto<T> {
+    private List<T> items;
+    // Передаётся в cursor за следующей страницей; null — страница последняя
+    private String nextCursor;
+}
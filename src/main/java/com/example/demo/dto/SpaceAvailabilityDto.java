@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SpaceAvailabilityDto {
+    private Long coworkingSpaceId;
+    private int freeDays;
+    // Свободные дни сжаты в непрерывные интервалы
+    private List<DateRangeDto> freeRanges;
+}
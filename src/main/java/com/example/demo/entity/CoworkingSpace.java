@@ -1,6 +1,5 @@
 package com.example.demo.entity;
 
-import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
@@ -8,6 +7,7 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -24,7 +24,9 @@ import lombok.Setter;
 public class CoworkingSpace {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "coworking_spaces_id_seq")
+    @SequenceGenerator(name = "coworking_spaces_id_seq", sequenceName = "coworking_spaces_id_seq",
+        allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -33,6 +35,8 @@ public class CoworkingSpace {
     @Column(length = 500)
     private String address;
 
-    @OneToMany(mappedBy = "coworkingSpace", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    // Без каскада: брони пространства удаляются пакетными запросами в deleteSpace,
+    // а не загрузкой и удалением каждой через Hibernate
+    @OneToMany(mappedBy = "coworkingSpace", fetch = FetchType.LAZY)
     private List<Reservation> reservations;
 }
@@ -6,20 +6,27 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import java.time.LocalDate;
-import java.util.List;
+import java.util.Set;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
-@Table(name = "reservations")
+// Окончательная защита от двойного бронирования, индекс занятости её только опережает.
+// Индекс (date, id) нужен постраничной выдаче в порядке дат
+@Table(name = "reservations",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"coworking_space_id", "date"}),
+    indexes = @Index(name = "idx_reservations_date_id", columnList = "date, id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -27,7 +34,9 @@ import lombok.Setter;
 public class Reservation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservations_id_seq")
+    @SequenceGenerator(name = "reservations_id_seq", sequenceName = "reservations_id_seq",
+        allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -41,6 +50,8 @@ public class Reservation {
     @JoinTable(name = "reservation_user",
             joinColumns = @JoinColumn(name = "reservation_id"),
             inverseJoinColumns = @JoinColumn(name = "user_id"))
-    private List<User> users;
+    // Set, а не List: при изменении состава Hibernate удаляет и вставляет только
+    // изменившиеся строки reservation_user, а не пересоздаёт их все
+    private Set<User> users;
 }
 
@@ -1,13 +1,23 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.CoworkingSpace;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CoworkingSpaceRepository extends JpaRepository<CoworkingSpace, Long> {
@@ -17,4 +27,28 @@ public interface CoworkingSpaceRepository extends JpaRepository<CoworkingSpace,
                          String name);
 
     List<CoworkingSpace> findByNameIn(List<String> names);
-}
\ No newline at end of file
+
+    @Query("SELECT s.id FROM CoworkingSpace s ORDER BY s.id")
+    List<Long> findAllIds();
+
+    @Query("SELECT s.id FROM CoworkingSpace s WHERE s.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Пары (id пространства, id брони) для набора пространств
+    @Query("SELECT r.coworkingSpace.id, r.id FROM Reservation r"
+        + " WHERE r.coworkingSpace.id IN :spaceIds")
+    List<Object[]> findReservationIdPairs(@Param("spaceIds") Collection<Long> spaceIds);
+
+    List<CoworkingSpace> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Блокировка строки пространства до конца транзакции: новые брони на него
+    // (ссылка по внешнему ключу) ждут, пока удаление не завершится
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CoworkingSpace s WHERE s.id = :id")
+    Optional<CoworkingSpace> findForDelete(@Param("id") Long id);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT s FROM CoworkingSpace s ORDER BY s.id")
+    Stream<CoworkingSpace> streamAll();
+}
@@ -1,12 +1,24 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.Reservation;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import jakarta.validation.constraints.FutureOrPresent;
 import jakarta.validation.constraints.NotNull;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -18,5 +30,79 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
         LocalDate date,
         @NotNull(message = "Coworking space ID is required") Long coworkingSpaceId);
 
-    List<Reservation> findByDateInAndCoworkingSpaceIdIn(List<LocalDate> dates, List<Long> spaceIds);
+    // Занятые даты пространства для индекса занятости
+    @Query("SELECT r.date FROM Reservation r"
+        + " WHERE r.coworkingSpace.id = :spaceId AND r.date >= :from")
+    List<LocalDate> findReservedDates(@Param("spaceId") Long spaceId,
+                                      @Param("from") LocalDate from);
+
+    // Пары (id пространства, дата) для начальной загрузки индекса занятости
+    @Query("SELECT r.coworkingSpace.id, r.date FROM Reservation r WHERE r.date >= :from")
+    List<Object[]> findReservedDays(@Param("from") LocalDate from);
+
+    // Блокировка строки брони: изменения состава участников одной брони идут по очереди
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.id = :id")
+    Optional<Reservation> findForUpdate(@Param("id") Long id);
+
+    // Участники добавляются и удаляются одним запросом на весь список, без загрузки
+    // коллекции users; уже записанные участники повторно не вставляются
+    @Modifying
+    @Query(value = "INSERT INTO reservation_user (reservation_id, user_id)"
+        + " SELECT :reservationId, u.id FROM users u WHERE u.id IN :userIds"
+        + " AND NOT EXISTS (SELECT 1 FROM reservation_user ru"
+        + " WHERE ru.reservation_id = :reservationId AND ru.user_id = u.id)",
+        nativeQuery = true)
+    int addUsers(@Param("reservationId") Long reservationId,
+                 @Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM reservation_user"
+        + " WHERE reservation_id = :reservationId AND user_id IN :userIds",
+        nativeQuery = true)
+    int removeUsers(@Param("reservationId") Long reservationId,
+                    @Param("userIds") Collection<Long> userIds);
+
+    // Брони пространства перед его удалением: id для сброса кэша, даты для кэша
+    // пользователей по дате
+    @Query("SELECT r.id, r.date FROM Reservation r WHERE r.coworkingSpace.id = :spaceId")
+    List<Object[]> findIdsAndDatesBySpace(@Param("spaceId") Long spaceId);
+
+    @Query("SELECT DISTINCT u.id FROM Reservation r JOIN r.users u"
+        + " WHERE r.coworkingSpace.id = :spaceId")
+    List<Long> findUserIdsBySpace(@Param("spaceId") Long spaceId);
+
+    // Удаление всех броней пространства двумя запросами: сначала строки связи
+    // с пользователями, затем сами брони
+    @Modifying
+    @Query(value = "DELETE FROM reservation_user WHERE reservation_id IN"
+        + " (SELECT id FROM reservations WHERE coworking_space_id = :spaceId)",
+        nativeQuery = true)
+    int deleteUserLinksBySpace(@Param("spaceId") Long spaceId);
+
+    @Modifying
+    @Query("DELETE FROM Reservation r WHERE r.coworkingSpace.id = :spaceId")
+    int deleteBySpace(@Param("spaceId") Long spaceId);
+
+    // Пары (id брони, id пользователя) для набора броней
+    @Query("SELECT r.id, u.id FROM Reservation r JOIN r.users u WHERE r.id IN :reservationIds")
+    List<Object[]> findUserIdPairs(@Param("reservationIds") Collection<Long> reservationIds);
+
+    List<Reservation> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    List<Reservation> findAllByOrderByDateAscIdAsc(Limit limit);
+
+    // Страница по (date, id) после последней записи предыдущей; условие r.date >= :date
+    // ограничивает просмотр индекса по дате
+    @Query("SELECT r FROM Reservation r WHERE r.date >= :date"
+        + " AND (r.date > :date OR r.id > :id) ORDER BY r.date, r.id")
+    List<Reservation> findPageAfter(@Param("date") LocalDate date, @Param("id") Long id,
+                                    Limit limit);
+
+    // Выгрузка: строки читаются курсором БД порциями по fetch size, а не всей таблицей;
+    // только чтение — Hibernate не хранит для сущностей копии состояния
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r FROM Reservation r ORDER BY r.id")
+    Stream<Reservation> streamAll();
 }
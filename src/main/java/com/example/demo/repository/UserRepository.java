@@ -1,14 +1,20 @@
 package com.example.demo.repository;
 
 import com.example.demo.entity.User;
+import jakarta.persistence.QueryHint;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -21,11 +27,31 @@ public interface UserRepository extends JpaRepository<User, Long> {
                           @Size(max = 255, message = "Email must be less than 255 characters")
                           String email);
 
-    @Query("SELECT DISTINCT u FROM User u JOIN u.reservations r WHERE r.date = :date")
-    List<User> findUsersWithReservationsOnDate(@Param("date") LocalDate date);
+    // Только id: результат кэшируется компактно, пользователи берутся из UserCache
+    @Query("SELECT DISTINCT u.id FROM User u JOIN u.reservations r WHERE r.date = :date"
+        + " ORDER BY u.id")
+    List<Long> findUserIdsWithReservationsOnDate(@Param("date") LocalDate date);
 
-  @Query("SELECT DISTINCT u FROM User u JOIN u.reservations r WHERE r.coworkingSpace.id = :coworkingSpaceId")
-  List<User> findUsersByCoworkingSpace(@Param("coworkingSpaceId") Long coworkingSpaceId);
+    @Query("SELECT DISTINCT u.id FROM User u JOIN u.reservations r"
+        + " WHERE r.coworkingSpace.id = :coworkingSpaceId ORDER BY u.id")
+    List<Long> findUserIdsByCoworkingSpace(@Param("coworkingSpaceId") Long coworkingSpaceId);
 
     List<User> findByEmailIn(List<String> emails);
-}
\ No newline at end of file
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Пары (id пользователя, id брони) для набора пользователей: заменяют ленивую загрузку
+    // коллекции reservations у каждого
+    @Query("SELECT u.id, r.id FROM User u JOIN u.reservations r WHERE u.id IN :userIds")
+    List<Object[]> findReservationIdPairs(@Param("userIds") Collection<Long> userIds);
+
+    // Страница по первичному ключу: limit строк после id последней записи предыдущей
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // Курсор БД для выгрузки, см. ReservationRepository.streamAll
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAll();
+}
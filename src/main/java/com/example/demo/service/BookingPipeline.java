@@ -0,0 +1,147 @@
+package com.example.demo.service;
+
+import com.example.demo.exception.InternalErrorException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+// Приём заявок с разбиением по ключу на полосы. Заявки одной полосы обрабатывает один поток
+// за раз: тот, кто захватил блокировку полосы, забирает накопившуюся очередь пачками
+// и выполняет их за всех ожидающих. Разные полосы работают параллельно.
+final class BookingPipeline<R, V> {
+
+    private static final int STRIPES = 64;
+    // Как часто ожидающий поток проверяет, не освободилась ли полоса
+    private static final long WAIT_MILLIS = 5;
+
+    static final class Request<R, V> {
+        private final R payload;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private Request(R payload) {
+            this.payload = payload;
+        }
+
+        R payload() {
+            return payload;
+        }
+
+        boolean isDone() {
+            return result.isDone();
+        }
+
+        void complete(V value) {
+            result.complete(value);
+        }
+
+        void fail(Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private static final class Stripe<R, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final Queue<Request<R, V>> queue = new ConcurrentLinkedQueue<>();
+    }
+
+    private final ToLongFunction<R> keyFunction;
+    private final Consumer<List<Request<R, V>>> processor;
+    private final int maxBatchSize;
+    private final List<Stripe<R, V>> stripes = new ArrayList<>(STRIPES);
+
+    // Обработчик получает пачку заявок одной полосы и завершает каждую через complete или fail
+    BookingPipeline(ToLongFunction<R> keyFunction, Consumer<List<Request<R, V>>> processor,
+                    int maxBatchSize) {
+        this.keyFunction = keyFunction;
+        this.processor = processor;
+        this.maxBatchSize = maxBatchSize;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new Stripe<>());
+        }
+    }
+
+    V submit(R payload) {
+        Request<R, V> request = new Request<>(payload);
+        Stripe<R, V> stripe = stripes.get(stripeIndex(keyFunction.applyAsLong(payload)));
+        stripe.queue.add(request);
+        boolean interrupted = false;
+        while (!request.isDone()) {
+            if (stripe.lock.tryLock()) {
+                try {
+                    while (!request.isDone()) {
+                        processBatch(stripe);
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            } else {
+                interrupted |= awaitQuietly(request);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            return request.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void processBatch(Stripe<R, V> stripe) {
+        List<Request<R, V>> batch = new ArrayList<>();
+        Request<R, V> next;
+        while (batch.size() < maxBatchSize && (next = stripe.queue.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        // Каждая забранная заявка завершается при любом исходе, иначе её отправитель
+        // ждал бы вечно. Error завершает пачку и пробрасывается дальше
+        try {
+            processor.accept(batch);
+        } catch (RuntimeException e) {
+            batch.forEach(request -> request.fail(e));
+        } catch (Error e) {
+            batch.forEach(request -> request.fail(e));
+            throw e;
+        } finally {
+            batch.forEach(request -> request.fail(
+                new InternalErrorException("Booking request was not processed")));
+        }
+    }
+
+    // Полоса занята: ждём, пока заявку выполнит другой поток или полоса освободится.
+    // Прерывание не отменяет ожидание: заявка уже в очереди и может быть записана в БД
+    private static boolean awaitQuietly(Request<?, ?> request) {
+        try {
+            request.result.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // результат заберём в submit
+        } catch (InterruptedException e) {
+            return true;
+        }
+        return false;
+    }
+
+    private static int stripeIndex(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> (Long.SIZE - Integer.numberOfTrailingZeros(STRIPES)));
+    }
+}
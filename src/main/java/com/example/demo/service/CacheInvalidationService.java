@@ -0,0 +1,145 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.CacheInvalidation;
+import com.example.demo.cache.CacheInvalidationBus;
+import com.example.demo.cache.CacheInvalidationListener;
+import jakarta.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Рассылает изменённые ключи другим экземплярам и применяет их инвалидации к своим кэшам.
+// Ключи копятся за транзакцию и уходят одним сообщением на кэш перед коммитом; шина доставляет
+// их только после коммита: откаченные изменения не рассылаются, а подписчики не перечитают
+// ещё не закоммиченные данные. Свои кэши сервисы обновляют сами, здесь после коммита
+// повторно сбрасываются только ключи, куда конкурентное чтение могло вернуть старые данные.
+@Service
+@RequiredArgsConstructor
+public class CacheInvalidationService implements CacheInvalidationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationService.class);
+
+    // Отличает свои сообщения: их ключи уже обработаны после коммита транзакции
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final CacheService cacheService;
+
+    @PostConstruct
+    public void subscribe() {
+        cacheInvalidationBus.subscribe(this);
+    }
+
+    // Ключи, удалённые из локального кэша. До коммита конкурентное чтение может загрузить
+    // туда старую строку, поэтому после коммита они удаляются ещё раз
+    public void invalidate(String cacheName, long key) {
+        invalidate(cacheName, List.of(key));
+    }
+
+    public void invalidate(String cacheName, Collection<Long> keys) {
+        invalidate(cacheName, keys, true);
+    }
+
+    // Ключи, которым транзакция сама записала новое значение (или индекс применит его после
+    // коммита). Явная запись важнее параллельной загрузки, поэтому локально после коммита
+    // сбрасывается только отрицательный кэш: промах до коммита мог запомнить новый id
+    public void invalidateRemote(String cacheName, long key) {
+        invalidateRemote(cacheName, List.of(key));
+    }
+
+    public void invalidateRemote(String cacheName, Collection<Long> keys) {
+        invalidate(cacheName, keys, false);
+    }
+
+    @Override
+    public void onInvalidation(CacheInvalidation invalidation) {
+        if (instanceId.equals(invalidation.origin())) {
+            return;
+        }
+        cacheService.evict(invalidation.cacheName(),
+            Arrays.stream(invalidation.keys()).boxed().toList());
+    }
+
+    @Override
+    public void onReset() {
+        logger.warn("Cache invalidations may have been lost, clearing all caches");
+        cacheService.clearAll();
+    }
+
+    private void invalidate(String cacheName, Collection<Long> keys, boolean evicted) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(cacheName, keys);
+            return;
+        }
+        Batch batch = pendingInvalidations();
+        batch.add(batch.published, cacheName, keys);
+        batch.add(evicted ? batch.evicted : batch.written, cacheName, keys);
+    }
+
+    // Пачка ключей текущей транзакции; при первом обращении регистрируется отправка перед
+    // коммитом и локальная очистка после завершения
+    private Batch pendingInvalidations() {
+        Batch pending = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        Batch batch = new Batch();
+        TransactionSynchronizationManager.bindResource(this, batch);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                batch.published.forEach(CacheInvalidationService.this::publish);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(
+                    CacheInvalidationService.this);
+                if (status == STATUS_COMMITTED) {
+                    batch.evicted.forEach(cacheService::evict);
+                    batch.written.forEach(cacheService::evictMissing);
+                } else {
+                    // Записанные транзакцией значения откатились вместе с ней
+                    batch.published.forEach(cacheService::evict);
+                }
+            }
+        });
+        return batch;
+    }
+
+    private void publish(String cacheName, Collection<Long> keys) {
+        long[] ids = keys.stream().mapToLong(Long::longValue).toArray();
+        try {
+            cacheInvalidationBus.publish(new CacheInvalidation(instanceId, cacheName, ids));
+        } catch (RuntimeException e) {
+            // Сообщение не ушло: свои кэши сбрасываются целиком, чужие догонят по TTL
+            logger.warn("Failed to publish cache invalidation for " + cacheName, e);
+            onReset();
+        }
+    }
+
+    // Ключи одной транзакции по кэшам
+    private static final class Batch {
+        final Map<String, Set<Long>> published = new LinkedHashMap<>();
+        final Map<String, Set<Long>> evicted = new LinkedHashMap<>();
+        final Map<String, Set<Long>> written = new LinkedHashMap<>();
+
+        void add(Map<String, Set<Long>> target, String cacheName, Collection<Long> keys) {
+            target.computeIfAbsent(cacheName, name -> new LinkedHashSet<>()).addAll(keys);
+        }
+    }
+}
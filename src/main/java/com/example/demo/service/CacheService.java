@@ -0,0 +1,141 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.CacheStats;
+import com.example.demo.cache.CoworkingSpaceCache;
+import com.example.demo.cache.LfuCache;
+import com.example.demo.cache.MissingReservationCache;
+import com.example.demo.cache.MissingUserCache;
+import com.example.demo.cache.OccupancyIndex;
+import com.example.demo.cache.ReservationCache;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cache.UsersByDateCache;
+import com.example.demo.cache.UsersBySpaceCache;
+import com.example.demo.dto.CacheInfoDto;
+import com.example.demo.dto.CacheStatsDto;
+import com.example.demo.exception.BadRequestException;
+import com.example.demo.exception.NotFoundException;
+import java.util.Collection;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+public class CacheService {
+
+    public static final String USERS = "users";
+    public static final String RESERVATIONS = "reservations";
+    public static final String SPACES = "spaces";
+    // Результаты запросов: ключ — epochDay даты или id пространства
+    public static final String USERS_BY_DATE = "users-by-date";
+    public static final String USERS_BY_SPACE = "users-by-space";
+    // Индекс занятости: ключ — id пространства, в списке кэшей не участвует
+    public static final String OCCUPANCY = "occupancy";
+
+    private static final List<String> CACHE_NAMES =
+        List.of(USERS, RESERVATIONS, SPACES, USERS_BY_DATE, USERS_BY_SPACE);
+
+    private final UserCache userCache;
+    private final ReservationCache reservationCache;
+    private final CoworkingSpaceCache coworkingSpaceCache;
+    private final UsersByDateCache usersByDateCache;
+    private final UsersBySpaceCache usersBySpaceCache;
+    private final MissingUserCache missingUserCache;
+    private final MissingReservationCache missingReservationCache;
+    private final OccupancyIndex occupancyIndex;
+
+    public List<CacheInfoDto> getCaches() {
+        return CACHE_NAMES.stream()
+            .map(this::getCache)
+            .toList();
+    }
+
+    public List<CacheStatsDto> getStats() {
+        return CACHE_NAMES.stream()
+            .map(name -> convertToDto(name, resolve(name).stats()))
+            .toList();
+    }
+
+    public CacheInfoDto getCache(String name) {
+        return convertToDto(name, resolve(name));
+    }
+
+    // Новое ограничение в тех же единицах, что и в настройках: записи или вес
+    public CacheInfoDto resize(String name, long maximum) {
+        if (maximum < 0) {
+            throw new BadRequestException("Cache maximum cannot be negative");
+        }
+        LfuCache<?> cache = resolve(name);
+        cache.setMaximum(maximum);
+        return convertToDto(name, cache);
+    }
+
+    // Ключи изменились в БД: убираем их и из кэша, и из отрицательного кэша
+    public void evict(String name, Collection<Long> keys) {
+        if (OCCUPANCY.equals(name)) {
+            keys.forEach(occupancyIndex::evict);
+            return;
+        }
+        LfuCache<?> cache = resolve(name);
+        cache.removeAll(keys);
+        evictMissing(name, keys);
+    }
+
+    // Только отрицательный кэш: ключи появились в БД, а значения в кэше уже актуальны
+    public void evictMissing(String name, Collection<Long> keys) {
+        switch (name) {
+            case USERS -> missingUserCache.removeAll(keys);
+            case RESERVATIONS -> missingReservationCache.removeAll(keys);
+            default -> {
+                // для остальных кэшей отрицательного кэша нет
+            }
+        }
+    }
+
+    public void clearAll() {
+        CACHE_NAMES.forEach(name -> resolve(name).clear());
+        missingUserCache.clear();
+        missingReservationCache.clear();
+        occupancyIndex.clear();
+    }
+
+    private LfuCache<?> resolve(String name) {
+        return switch (name) {
+            case USERS -> userCache;
+            case RESERVATIONS -> reservationCache;
+            case SPACES -> coworkingSpaceCache;
+            case USERS_BY_DATE -> usersByDateCache;
+            case USERS_BY_SPACE -> usersBySpaceCache;
+            default -> throw new NotFoundException("Cache not found: " + name);
+        };
+    }
+
+    private CacheInfoDto convertToDto(String name, LfuCache<?> cache) {
+        CacheInfoDto dto = new CacheInfoDto();
+        dto.setName(name);
+        dto.setWeighted(cache.isWeighted());
+        dto.setMaximum(cache.getMaximum());
+        dto.setWeightedSize(cache.getWeightedSize());
+        dto.setEstimatedSize(cache.getEstimatedSize());
+        return dto;
+    }
+
+    private CacheStatsDto convertToDto(String name, CacheStats stats) {
+        CacheStatsDto dto = new CacheStatsDto();
+        dto.setName(name);
+        dto.setHitCount(stats.hitCount());
+        dto.setMissCount(stats.missCount());
+        dto.setHitRate(stats.hitRate());
+        dto.setPutCount(stats.putCount());
+        dto.setEvictionCount(stats.evictionCount());
+        dto.setLoadSuccessCount(stats.loadSuccessCount());
+        dto.setLoadFailureCount(stats.loadFailureCount());
+        dto.setTotalLoadTimeNanos(stats.totalLoadTimeNanos());
+        dto.setAverageLoadPenaltyNanos(stats.averageLoadPenaltyNanos());
+        dto.setOffHeapHitCount(stats.offHeapHitCount());
+        dto.setEstimatedSize(stats.estimatedSize());
+        dto.setWeightedSize(stats.weightedSize());
+        dto.setOffHeapSize(stats.offHeapSize());
+        return dto;
+    }
+}
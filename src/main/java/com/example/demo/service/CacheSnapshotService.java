@@ -0,0 +1,140 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.CacheProperties;
+import com.example.demo.cache.CacheRefreshExecutor;
+import com.example.demo.cache.CacheSnapshotFile;
+import com.example.demo.cache.CoworkingSpaceCache;
+import com.example.demo.cache.CoworkingSpaceSnapshotCodec;
+import com.example.demo.cache.LfuCache;
+import com.example.demo.cache.ReservationCache;
+import com.example.demo.cache.ReservationSnapshotCodec;
+import com.example.demo.cache.SnapshotCodec;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cache.UserSnapshotCodec;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Периодически сохраняет рабочий набор кэшей на диск и прогревает кэши после перезапуска
+@Service
+@RequiredArgsConstructor
+public class CacheSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheSnapshotService.class);
+
+    // Ключи без значений догружаются из БД пачками такого размера
+    private static final int RELOAD_BATCH_SIZE = 500;
+
+    private final CacheProperties cacheProperties;
+    private final CacheRefreshExecutor refreshExecutor;
+    private final UserCache userCache;
+    private final ReservationCache reservationCache;
+    private final CoworkingSpaceCache coworkingSpaceCache;
+    private final UserSnapshotCodec userSnapshotCodec;
+    private final ReservationSnapshotCodec reservationSnapshotCodec;
+    private final CoworkingSpaceSnapshotCodec coworkingSpaceSnapshotCodec;
+    private final UserService userService;
+    private final ReservationService reservationService;
+    private final CoworkingSpaceService coworkingSpaceService;
+
+    // Плановая запись и запись при остановке пишут в одни и те же временные файлы,
+    // поэтому не выполняются одновременно
+    @Scheduled(fixedDelayString = "${cache.snapshot.interval:PT5M}",
+        initialDelayString = "${cache.snapshot.interval:PT5M}")
+    public synchronized void writeSnapshots() {
+        if (!cacheProperties.getSnapshot().isEnabled()) {
+            return;
+        }
+        write("users", userCache, userSnapshotCodec);
+        write("reservations", reservationCache, reservationSnapshotCodec);
+        write("spaces", coworkingSpaceCache, coworkingSpaceSnapshotCodec);
+    }
+
+    // Последний снимок перед остановкой — самый свежий рабочий набор для следующего старта
+    @PreDestroy
+    public void writeSnapshotsOnShutdown() {
+        writeSnapshots();
+    }
+
+    // Прогрев в фоне: приложение принимает запросы сразу, не дожидаясь загрузки
+    @EventListener(ApplicationReadyEvent.class)
+    public void reloadSnapshots() {
+        if (!cacheProperties.getSnapshot().isEnabled()) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            reload("users", userCache, userSnapshotCodec, userService::getUsersByIds);
+            reload("reservations", reservationCache, reservationSnapshotCodec,
+                reservationService::getReservationsByIds);
+            reload("spaces", coworkingSpaceCache, coworkingSpaceSnapshotCodec,
+                coworkingSpaceService::getSpacesByIds);
+        }, refreshExecutor);
+    }
+
+    private <T> void write(String name, LfuCache<T> cache, SnapshotCodec<T> codec) {
+        Map<Long, T> entries = cache.entries();
+        try {
+            CacheSnapshotFile.write(pathOf(name), entries,
+                cacheProperties.getSnapshot().isIncludeValues() ? codec : null);
+            logger.info("Cache snapshot written: " + name + ", entries: " + entries.size());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to write cache snapshot: " + name, e);
+        }
+    }
+
+    // batchLoader прогревает кэш через сервис: промахи догружаются одним запросом на пачку
+    private <T> void reload(String name, LfuCache<T> cache, SnapshotCodec<T> codec,
+                            Consumer<List<Long>> batchLoader) {
+        Path path = pathOf(name);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            CacheSnapshotFile.Contents<T> contents = CacheSnapshotFile.read(path, codec);
+            List<Long> keys = contents.keys();
+            for (int from = 0; from < keys.size(); from += RELOAD_BATCH_SIZE) {
+                int to = Math.min(from + RELOAD_BATCH_SIZE, keys.size());
+                List<Long> batch = keys.subList(from, to);
+                if (contents.values().isEmpty()) {
+                    batchLoader.accept(batch);
+                } else {
+                    putAbsent(cache, batch, contents.values());
+                }
+            }
+            logger.info("Cache snapshot reloaded: " + name + ", keys: " + keys.size());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to reload cache snapshot: " + name, e);
+        }
+    }
+
+    // Значения из снимка не перетирают записи, появившиеся в кэше после старта,
+    // а проверка наличия не засчитывается в статистику и частоты обращений
+    private <T> void putAbsent(LfuCache<T> cache, List<Long> batch, Map<Long, T> values) {
+        Map<Long, T> snapshot = new HashMap<>();
+        for (Long key : batch) {
+            T value = values.get(key);
+            if (value != null) {
+                snapshot.put(key, value);
+            }
+        }
+        cache.putAllAbsent(snapshot);
+    }
+
+    private Path pathOf(String name) {
+        return Paths.get(cacheProperties.getSnapshot().getDirectory(), name + ".snapshot");
+    }
+}
@@ -1,25 +1,64 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.CacheLookup;
 import com.example.demo.cache.CoworkingSpaceCache;
+import com.example.demo.cache.CoworkingSpaceSnapshot;
+import com.example.demo.cache.OccupancyIndex;
+import com.example.demo.cache.ReservationCache;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cache.UsersByDateCache;
+import com.example.demo.cache.UsersBySpaceCache;
 import com.example.demo.dto.CoworkingSpaceDto;
+import com.example.demo.dto.ImportResultDto;
+import com.example.demo.dto.PageDto;
 import com.example.demo.entity.CoworkingSpace;
 import com.example.demo.entity.Reservation;
 import com.example.demo.exception.BadRequestException;
 import com.example.demo.repository.CoworkingSpaceRepository;
-import java.util.Collections;
+import com.example.demo.repository.ReservationRepository;
+import com.example.demo.service.NdjsonImporter.ImportRecord;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
 public class CoworkingSpaceService {
 
+    private static final List<String> SPACE_CSV_HEADER = List.of(
+        "id", "name", "address", "reservationIds");
+
     private final CoworkingSpaceRepository coworkingSpaceRepository;
+    private final ReservationRepository reservationRepository;
     private final CoworkingSpaceCache coworkingSpaceCache;
+    private final ReservationCache reservationCache;
+    private final UserCache userCache;
+    private final UsersByDateCache usersByDateCache;
+    private final UsersBySpaceCache usersBySpaceCache;
+    private final OccupancyIndex occupancyIndex;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final TransactionTemplate transactionTemplate;
+    private final NdjsonImporter ndjsonImporter;
+    private final StreamingExporter streamingExporter;
 
     // Create
     @Transactional
@@ -36,8 +75,9 @@ public class CoworkingSpaceService {
         space.setName(dto.getName());
         space.setAddress(dto.getAddress());
 
-        CoworkingSpace saved = coworkingSpaceRepository.save(space);
-        coworkingSpaceCache.put(saved.getId(), saved); // Добавляем в кэш
+        CoworkingSpaceSnapshot saved = toSnapshot(coworkingSpaceRepository.save(space));
+        coworkingSpaceCache.put(saved.id(), saved); // Добавляем в кэш
+        cacheInvalidationService.invalidateRemote(CacheService.SPACES, saved.id());
         return Optional.of(convertToDto(saved));
     }
 
@@ -48,28 +88,57 @@ public class CoworkingSpaceService {
             throw new BadRequestException("Invalid space ID");
         }
 
-        CoworkingSpace cachedSpace = coworkingSpaceCache.get(id); // Проверяем кэш
-        if (cachedSpace != null) {
-            return Optional.of(convertToDto(cachedSpace));
-        }
-
-        return coworkingSpaceRepository.findById(id)
-            .map(space -> {
-                coworkingSpaceCache.put(space.getId(), space); // Кэшируем результат
-                return convertToDto(space);
-            });
+        // Одновременные промахи по одному id разделяют один запрос к БД
+        // Загрузчик открывает свою транзакцию: фоновое обновление идёт вне транзакции запроса
+        CoworkingSpaceSnapshot space = coworkingSpaceCache.getOrLoad(id, key ->
+            transactionTemplate.execute(status -> coworkingSpaceRepository.findById(key)
+                .map(this::toSnapshot)
+                .orElse(null)));
+        return Optional.ofNullable(space).map(this::convertToDto);
     }
 
     @Transactional(readOnly = true)
-    public List<CoworkingSpaceDto> getAllSpaces() {
-        List<CoworkingSpace> spaces = coworkingSpaceRepository.findAll();
-        spaces.forEach(space ->
-            coworkingSpaceCache.put(space.getId(), space)); // Кэшируем все пространства
-        return spaces.stream()
+    public List<CoworkingSpaceDto> getSpacesByIds(List<Long> ids) {
+        // Один проход по кэшу, промахи догружаются одним запросом
+        CacheLookup<CoworkingSpaceSnapshot> lookup = coworkingSpaceCache.getAll(ids);
+        Map<Long, CoworkingSpaceSnapshot> found = new HashMap<>(lookup.hits());
+        if (!lookup.missingIds().isEmpty()) {
+            Map<Long, CoworkingSpaceSnapshot> loaded = toSnapshots(coworkingSpaceRepository
+                    .findAllById(lookup.missingIds())).stream()
+                .collect(Collectors.toMap(CoworkingSpaceSnapshot::id, Function.identity()));
+            coworkingSpaceCache.putAll(loaded);
+            found.putAll(loaded);
+        }
+        return ids.stream()
+            .distinct()
+            .map(found::get)
+            .filter(Objects::nonNull)
             .map(this::convertToDto)
             .toList();
     }
 
+    // Просмотр списка не кэшируется, чтобы не вытеснять горячие записи
+    @Transactional(readOnly = true)
+    public PageDto<CoworkingSpaceDto> getSpacesPage(String cursor, int limit) {
+        long afterId = cursor == null ? 0 : PageCursor.decode(cursor, PageCursor.BY_ID).id();
+        List<CoworkingSpace> spaces = coworkingSpaceRepository.findByIdGreaterThanOrderByIdAsc(
+            afterId, Limit.of(limit + 1));
+        return PageCursor.toPage(spaces, limit, this::convertToDtos,
+            space -> PageCursor.encode(PageCursor.BY_ID, "", space.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public void exportSpaces(String format, OutputStream out) throws IOException {
+        Stream<CoworkingSpace> spaces = coworkingSpaceRepository.streamAll();
+        if ("csv".equals(format)) {
+            streamingExporter.writeCsv(spaces, out, SPACE_CSV_HEADER, this::toSnapshots,
+                space -> Arrays.asList(space.id(), space.name(), space.address(),
+                    StreamingExporter.joinIds(space.reservationIds())));
+        } else {
+            streamingExporter.writeJson(spaces, out, this::convertToDtos);
+        }
+    }
+
     // Update
     @Transactional
     public Optional<CoworkingSpaceDto> updateSpace(Long id, CoworkingSpaceDto dto) {
@@ -92,8 +161,9 @@ public class CoworkingSpaceService {
 
                 existing.setName(dto.getName());
                 existing.setAddress(dto.getAddress());
-                CoworkingSpace updated = coworkingSpaceRepository.save(existing);
-                coworkingSpaceCache.put(updated.getId(), updated); // Обновляем кэш
+                CoworkingSpaceSnapshot updated = toSnapshot(coworkingSpaceRepository.save(existing));
+                coworkingSpaceCache.put(updated.id(), updated); // Обновляем кэш
+                cacheInvalidationService.invalidateRemote(CacheService.SPACES, updated.id());
                 return convertToDto(updated);
             });
     }
@@ -105,14 +175,39 @@ public class CoworkingSpaceService {
             throw new BadRequestException("Invalid space ID");
         }
 
-        if (!coworkingSpaceRepository.existsById(id)) {
+        Optional<CoworkingSpace> space = coworkingSpaceRepository.findForDelete(id);
+        if (space.isEmpty()) {
             return false;
         }
 
-        coworkingSpaceRepository.deleteById(id);
+        // Брони удаляются пакетными запросами без загрузки сущностей; перед этим читаются
+        // только их id, даты и участники — по ним сбрасываются кэши
+        List<Long> reservationIds = new ArrayList<>();
+        Set<Long> dates = new HashSet<>();
+        for (Object[] row : reservationRepository.findIdsAndDatesBySpace(id)) {
+            reservationIds.add((Long) row[0]);
+            dates.add(((LocalDate) row[1]).toEpochDay());
+        }
+        List<Long> userIds = reservationRepository.findUserIdsBySpace(id);
+        reservationRepository.deleteUserLinksBySpace(id);
+        reservationRepository.deleteBySpace(id);
+        coworkingSpaceRepository.delete(space.get());
+
         coworkingSpaceCache.remove(id); // Удаляем из кэша
+        reservationCache.removeAll(reservationIds);
+        userCache.removeAll(userIds);
+        usersBySpaceCache.remove(id);
+        dates.forEach(usersByDateCache::remove);
+        occupancyIndex.evict(id);
+        cacheInvalidationService.invalidate(CacheService.SPACES, id);
+        cacheInvalidationService.invalidate(CacheService.RESERVATIONS, reservationIds);
+        cacheInvalidationService.invalidate(CacheService.USERS, userIds);
+        cacheInvalidationService.invalidate(CacheService.USERS_BY_SPACE, id);
+        cacheInvalidationService.invalidate(CacheService.USERS_BY_DATE, dates);
+        cacheInvalidationService.invalidate(CacheService.OCCUPANCY, id);
         return true;
     }
+
     @Transactional
     public List<CoworkingSpaceDto> createSpacesBulk(List<CoworkingSpaceDto> dtos) {
         // Check for empty names
@@ -131,18 +226,17 @@ public class CoworkingSpaceService {
         }
 
         // Convert all DTOs to entities
-        List<CoworkingSpace> spaces = dtos.stream().map(dto -> {
-            CoworkingSpace space = new CoworkingSpace();
-            space.setName(dto.getName());
-            space.setAddress(dto.getAddress());
-            return space;
-        }).toList();
+        List<CoworkingSpace> spaces = dtos.stream().map(this::toEntity).toList();
 
         // Save all spaces
-        List<CoworkingSpace> savedSpaces = coworkingSpaceRepository.saveAll(spaces);
+        List<CoworkingSpaceSnapshot> savedSpaces = coworkingSpaceRepository.saveAll(spaces).stream()
+            .map(this::toSnapshot)
+            .toList();
 
         // Add to cache
-        savedSpaces.forEach(space -> coworkingSpaceCache.put(space.getId(), space));
+        savedSpaces.forEach(space -> coworkingSpaceCache.put(space.id(), space));
+        cacheInvalidationService.invalidateRemote(CacheService.SPACES,
+            savedSpaces.stream().map(CoworkingSpaceSnapshot::id).toList());
 
         // Convert to DTOs and return
         return savedSpaces.stream()
@@ -150,18 +244,92 @@ public class CoworkingSpaceService {
             .toList();
     }
 
+    public void importSpaces(InputStream in, OutputStream out) throws IOException {
+        ndjsonImporter.run(in, out, CoworkingSpaceDto.class, this::importSpaceChunk);
+    }
+
+    // Выполняется в транзакции пачки, импортированные пространства в кэш не кладутся
+    private List<ImportResultDto> importSpaceChunk(List<ImportRecord<CoworkingSpaceDto>> chunk) {
+        Set<String> takenNames = coworkingSpaceRepository.findByNameIn(chunk.stream()
+                .map(record -> record.value().getName())
+                .toList()).stream()
+            .map(CoworkingSpace::getName)
+            .collect(Collectors.toCollection(HashSet::new));
+        List<ImportResultDto> results = new ArrayList<>(chunk.size());
+        Map<ImportRecord<CoworkingSpaceDto>, CoworkingSpace> accepted = new LinkedHashMap<>();
+        for (ImportRecord<CoworkingSpaceDto> record : chunk) {
+            CoworkingSpaceDto dto = record.value();
+            if (dto.getId() != null) {
+                results.add(NdjsonImporter.rejected(record,
+                    "ID should not be provided for creation"));
+            } else if (!takenNames.add(dto.getName())) {
+                results.add(NdjsonImporter.rejected(record,
+                    "Space with name '" + dto.getName() + "' already exists"));
+            } else {
+                accepted.put(record, toEntity(dto));
+            }
+        }
+        coworkingSpaceRepository.saveAllAndFlush(accepted.values());
+        List<Long> ids = new ArrayList<>(accepted.size());
+        accepted.forEach((record, space) -> {
+            results.add(NdjsonImporter.created(record, space.getId()));
+            ids.add(space.getId());
+        });
+        cacheInvalidationService.invalidateRemote(CacheService.SPACES, ids);
+        return results;
+    }
+
+    private CoworkingSpace toEntity(CoworkingSpaceDto dto) {
+        CoworkingSpace space = new CoworkingSpace();
+        space.setName(dto.getName());
+        space.setAddress(dto.getAddress());
+        return space;
+    }
+
+    // Id бронирований всего набора пространств — одним запросом по IN
+    private List<CoworkingSpaceSnapshot> toSnapshots(List<CoworkingSpace> spaces) {
+        if (spaces.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, long[]> reservationIds = IdPairs.group(coworkingSpaceRepository
+            .findReservationIdPairs(spaces.stream().map(CoworkingSpace::getId).toList()));
+        return spaces.stream()
+            .map(space -> toSnapshot(space,
+                reservationIds.getOrDefault(space.getId(), new long[0])))
+            .toList();
+    }
+
+    private List<CoworkingSpaceDto> convertToDtos(List<CoworkingSpace> spaces) {
+        return toSnapshots(spaces).stream()
+            .map(this::convertToDto)
+            .toList();
+    }
+
+    private CoworkingSpaceSnapshot toSnapshot(CoworkingSpace space, long[] reservationIds) {
+        return new CoworkingSpaceSnapshot(
+            space.getId(),
+            space.getName(),
+            space.getAddress(),
+            reservationIds
+        );
+    }
+
+    private CoworkingSpaceSnapshot toSnapshot(CoworkingSpace space) {
+        return toSnapshot(space, space.getReservations() == null
+            ? new long[0]
+            : space.getReservations().stream().mapToLong(Reservation::getId).toArray());
+    }
+
     // Convert to DTO
-    private CoworkingSpaceDto convertToDto(CoworkingSpace space) {
+    private CoworkingSpaceDto convertToDto(CoworkingSpaceSnapshot space) {
         CoworkingSpaceDto dto = new CoworkingSpaceDto();
-        dto.setId(space.getId());
-        dto.setName(space.getName());
-        dto.setAddress(space.getAddress());
+        dto.setId(space.id());
+        dto.setName(space.name());
+        dto.setAddress(space.address());
 
         dto.setReservationIds(
-            space.getReservations() == null
-                ? Collections.emptyList()
-                : space.getReservations().stream()
-                .map(Reservation::getId)
+            Arrays.stream(space.reservationIds())
+                .boxed()
                 .collect(Collectors.toList())
         );
 
@@ -0,0 +1,26 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Результат запросов вида SELECT owner.id, item.id: id связанных записей, собранные
+// по владельцу. Так снимки набора сущностей строятся одним запросом вместо ленивой
+// загрузки коллекции у каждой
+final class IdPairs {
+
+    private IdPairs() {
+    }
+
+    static Map<Long, long[]> group(List<Object[]> pairs) {
+        Map<Long, List<Long>> grouped = new HashMap<>();
+        for (Object[] pair : pairs) {
+            grouped.computeIfAbsent((Long) pair[0], id -> new ArrayList<>()).add((Long) pair[1]);
+        }
+        Map<Long, long[]> result = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((id, ids) ->
+            result.put(id, ids.stream().mapToLong(Long::longValue).sorted().toArray()));
+        return result;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ImportResultDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Потоковый импорт NDJSON: строки читаются и проверяются по одной, записываются пачками
+// фиксированного размера, каждая в своей транзакции, а результат по каждой строке сразу
+// уходит клиенту. Память не зависит от размера входа, плохая строка не отменяет остальные.
+@Component
+@RequiredArgsConstructor
+public class NdjsonImporter {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    record ImportRecord<T>(long line, T value) {
+    }
+
+    // Обработчик пачки выполняется в транзакции и возвращает результат по каждой записи
+    <T> void run(InputStream in, OutputStream out, Class<T> type,
+                 Function<List<ImportRecord<T>>, List<ImportResultDto>> chunkHandler)
+        throws IOException {
+        ObjectReader reader = objectMapper.readerFor(type);
+        BufferedReader lines =
+            new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<ImportRecord<T>> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<ImportResultDto> rejected = new ArrayList<>();
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            T value = null;
+            String error;
+            try {
+                value = reader.readValue(line);
+                // Строка "null" читается как null, его валидатор не принимает
+                error = value == null ? "Record must not be null" : validate(value);
+            } catch (JsonProcessingException e) {
+                error = "Malformed JSON: " + e.getOriginalMessage();
+            }
+            if (error == null) {
+                chunk.add(new ImportRecord<>(lineNumber, value));
+            } else {
+                rejected.add(rejected(lineNumber, error));
+            }
+            // Отказы тоже копятся не больше пачки: вход из одних плохих строк не держится
+            // в памяти целиком. Неполная пачка записей уходит вместе с ними, чтобы
+            // результаты шли в порядке строк
+            if (chunk.size() == CHUNK_SIZE || rejected.size() == CHUNK_SIZE) {
+                write(out, importChunk(chunk, chunkHandler), rejected);
+                chunk = new ArrayList<>(CHUNK_SIZE);
+                rejected = new ArrayList<>();
+            }
+        }
+        write(out, importChunk(chunk, chunkHandler), rejected);
+    }
+
+    static ImportResultDto created(ImportRecord<?> record, Long id) {
+        ImportResultDto result = new ImportResultDto();
+        result.setLine(record.line());
+        result.setCreated(true);
+        result.setId(id);
+        return result;
+    }
+
+    static ImportResultDto rejected(ImportRecord<?> record, String error) {
+        return rejected(record.line(), error);
+    }
+
+    private static ImportResultDto rejected(long line, String error) {
+        ImportResultDto result = new ImportResultDto();
+        result.setLine(line);
+        result.setCreated(false);
+        result.setError(error);
+        return result;
+    }
+
+    // Если пачка нарушила ограничение БД (например, запись из параллельного импорта),
+    // она откатывается целиком и записи повторяются по одной
+    private <T> List<ImportResultDto> importChunk(
+        List<ImportRecord<T>> chunk,
+        Function<List<ImportRecord<T>>, List<ImportResultDto>> chunkHandler) {
+        if (chunk.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return transactionTemplate.execute(status -> chunkHandler.apply(chunk));
+        } catch (DataIntegrityViolationException e) {
+            if (chunk.size() == 1) {
+                return List.of(rejected(chunk.get(0), "Record conflicts with existing data"));
+            }
+            List<ImportResultDto> results = new ArrayList<>(chunk.size());
+            chunk.forEach(record -> results.addAll(importChunk(List.of(record), chunkHandler)));
+            return results;
+        }
+    }
+
+    private String validate(Object value) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(value);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(Collectors.joining("; "));
+    }
+
+    // Результаты пачки уходят в порядке строк входа
+    private void write(OutputStream out, List<ImportResultDto> imported,
+                       List<ImportResultDto> rejected) throws IOException {
+        List<ImportResultDto> results = new ArrayList<>(imported);
+        results.addAll(rejected);
+        results.sort(Comparator.comparingLong(ImportResultDto::getLine));
+        for (ImportResultDto result : results) {
+            out.write(objectMapper.writeValueAsBytes(result));
+            out.write('\n');
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.PageDto;
+import com.example.demo.exception.BadRequestException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+// Курсор постраничной выдачи: порядок сортировки, её ключ и id последней записи страницы.
+// Следующая страница читается строго после этой пары по индексу, без OFFSET, поэтому
+// дальние страницы стоят столько же, сколько первая. Клиенту отдаётся строкой base64url
+record PageCursor(String sort, String key, long id) {
+
+    static final String BY_ID = "id";
+    static final String BY_DATE = "date";
+
+    static String encode(String sort, String key, long id) {
+        String raw = sort + ":" + key + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Курсор, выданный для другого порядка сортировки, не принимается
+    static PageCursor decode(String cursor, String sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", -1);
+            if (parts.length != 3 || !parts[0].equals(sort)) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new PageCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    LocalDate date() {
+        try {
+            return LocalDate.parse(key);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    // Репозиторий читает на одну строку больше страницы: по ней видно, есть ли продолжение.
+    // mapper получает всю страницу сразу, чтобы связанные id догрузить одним запросом
+    static <E, T> PageDto<T> toPage(List<E> rows, int limit, Function<List<E>, List<T>> mapper,
+                                    Function<E, String> cursorOf) {
+        boolean hasNext = rows.size() > limit;
+        List<E> pageRows = hasNext ? rows.subList(0, limit) : rows;
+        PageDto<T> page = new PageDto<>();
+        page.setItems(mapper.apply(pageRows));
+        page.setNextCursor(hasNext ? cursorOf.apply(pageRows.get(limit - 1)) : null);
+        return page;
+    }
+}
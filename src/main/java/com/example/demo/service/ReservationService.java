@@ -1,7 +1,22 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.CacheLookup;
+import com.example.demo.cache.CoworkingSpaceCache;
+import com.example.demo.cache.CoworkingSpaceSnapshot;
+import com.example.demo.cache.MissingReservationCache;
+import com.example.demo.cache.OccupancyIndex;
 import com.example.demo.cache.ReservationCache;
+import com.example.demo.cache.ReservationSnapshot;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cache.UserSnapshot;
+import com.example.demo.cache.UsersByDateCache;
+import com.example.demo.cache.UsersBySpaceCache;
+import com.example.demo.dto.AvailabilityDto;
+import com.example.demo.dto.DateRangeDto;
+import com.example.demo.dto.ImportResultDto;
+import com.example.demo.dto.PageDto;
 import com.example.demo.dto.ReservationDto;
+import com.example.demo.dto.SpaceAvailabilityDto;
 import com.example.demo.entity.CoworkingSpace;
 import com.example.demo.entity.Reservation;
 import com.example.demo.entity.User;
@@ -10,57 +25,85 @@ import com.example.demo.exception.NotFoundException;
 import com.example.demo.repository.CoworkingSpaceRepository;
 import com.example.demo.repository.ReservationRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.service.BookingPipeline.Request;
+import com.example.demo.service.NdjsonImporter.ImportRecord;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
 public class ReservationService {
 
+    private static final int BOOKING_BATCH_SIZE = 64;
+    // SQLSTATE PostgreSQL: unique_violation и foreign_key_violation
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+    // Кратно hibernate.jdbc.batch_size
+    private static final int BULK_CHUNK_SIZE = 500;
+    private static final List<String> RESERVATION_CSV_HEADER = List.of(
+        "id", "date", "coworkingSpaceId", "userIds");
+
     private final ReservationRepository reservationRepository;
     private final CoworkingSpaceRepository coworkingSpaceRepository;
     private final UserRepository userRepository;
     private final ReservationCache reservationCache;
+    private final MissingReservationCache missingReservationCache;
+    private final TransactionTemplate transactionTemplate;
+    private final UserCache userCache;
+    private final CoworkingSpaceCache coworkingSpaceCache;
+    private final UsersByDateCache usersByDateCache;
+    private final UsersBySpaceCache usersBySpaceCache;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final OccupancyIndex occupancyIndex;
+    private final EntityManager entityManager;
+    private final NdjsonImporter ndjsonImporter;
+    private final StreamingExporter streamingExporter;
+
+    // Брони одного пространства проходят через одну полосу конвейера: проверка занятости
+    // и вставка не пересекаются, а накопившиеся заявки пишутся одной транзакцией
+    private final BookingPipeline<ReservationDto, ReservationSnapshot> bookingPipeline =
+        new BookingPipeline<>(ReservationDto::getCoworkingSpaceId, this::bookBatch,
+            BOOKING_BATCH_SIZE);
 
     // Create
-    @Transactional
     public Optional<ReservationDto> createReservation(ReservationDto dto) {
         if (dto.getDate().isBefore(LocalDate.now())) {
             throw new BadRequestException("Reservation date cannot be in the past");
         }
 
-        List<User> users = userRepository.findAllById(dto.getUserIds());
-        if (users.size() != dto.getUserIds().size()) {
-            List<Long> foundIds = users.stream().map(User::getId).toList();
-            List<Long> missingIds = dto.getUserIds().stream()
-                .filter(id -> !foundIds.contains(id))
-                .toList();
-            throw new NotFoundException("Users not found with IDs: " + missingIds);
-        }
-
-        CoworkingSpace space = coworkingSpaceRepository.findById(dto.getCoworkingSpaceId())
-            .orElseThrow(() -> new NotFoundException("Coworking space not found with ID: "
-                + dto.getCoworkingSpaceId()));
-
-        if (reservationRepository.existsByDateAndCoworkingSpaceId(
-            dto.getDate(), dto.getCoworkingSpaceId())) {
-            throw new BadRequestException("Coworking space is already reserved for this date");
-        }
-
-        Reservation reservation = new Reservation();
-        reservation.setDate(dto.getDate());
-        reservation.setCoworkingSpace(space);
-        reservation.setUsers(users);
-
-        Reservation saved = reservationRepository.save(reservation);
-        reservationCache.put(saved.getId(), saved); // Добавляем в кэш
-        return Optional.of(convertToDto(saved));
+        return Optional.of(convertToDto(bookingPipeline.submit(dto)));
     }
 
     // Read
@@ -70,28 +113,76 @@ public class ReservationService {
             throw new BadRequestException("Invalid reservation ID");
         }
 
-        Reservation cachedReservation = reservationCache.get(id); // Проверяем кэш
-        if (cachedReservation != null) {
-            return Optional.of(convertToDto(cachedReservation));
-        }
-
-        return reservationRepository.findById(id)
-            .map(reservation -> {
-                reservationCache.put(reservation.getId(), reservation); // Кэшируем результат
-                return convertToDto(reservation);
-            });
+        // Одновременные промахи по одному id разделяют один запрос к БД
+        ReservationSnapshot reservation = reservationCache.getOrLoad(id, this::loadReservation);
+        return Optional.ofNullable(reservation).map(this::convertToDto);
     }
 
     @Transactional(readOnly = true)
-    public List<ReservationDto> getAllReservations() {
-        List<Reservation> reservations = reservationRepository.findAll();
-        reservations.forEach(reservation ->
-            reservationCache.put(reservation.getId(), reservation)); // Кэшируем все бронирования
-        return reservations.stream()
+    public List<ReservationDto> getReservationsByIds(List<Long> ids) {
+        // Один проход по кэшу, промахи догружаются одним запросом
+        CacheLookup<ReservationSnapshot> lookup = reservationCache.getAll(ids);
+        Map<Long, ReservationSnapshot> found = new HashMap<>(lookup.hits());
+        List<Long> toLoad = lookup.missingIds().stream()
+            .filter(id -> !missingReservationCache.contains(id))
+            .toList();
+        if (!toLoad.isEmpty()) {
+            Map<Long, ReservationSnapshot> loaded = toSnapshots(reservationRepository
+                    .findAllById(toLoad)).stream()
+                .collect(Collectors.toMap(ReservationSnapshot::id, Function.identity()));
+            reservationCache.putAll(loaded);
+            found.putAll(loaded);
+            missingReservationCache.putAll(toLoad.stream()
+                .filter(id -> !loaded.containsKey(id))
+                .toList());
+        }
+        return ids.stream()
+            .distinct()
+            .map(found::get)
+            .filter(Objects::nonNull)
             .map(this::convertToDto)
             .toList();
     }
 
+    // Страница в порядке id или (date, id); просмотр списка в кэш не попадает
+    @Transactional(readOnly = true)
+    public PageDto<ReservationDto> getReservationsPage(String cursor, int limit, String sort) {
+        Limit rows = Limit.of(limit + 1);
+        List<Reservation> reservations;
+        if (PageCursor.BY_DATE.equals(sort)) {
+            if (cursor == null) {
+                reservations = reservationRepository.findAllByOrderByDateAscIdAsc(rows);
+            } else {
+                PageCursor after = PageCursor.decode(cursor, sort);
+                reservations = reservationRepository.findPageAfter(after.date(), after.id(),
+                    rows);
+            }
+        } else {
+            long afterId = cursor == null ? 0 : PageCursor.decode(cursor, sort).id();
+            reservations = reservationRepository.findByIdGreaterThanOrderByIdAsc(afterId, rows);
+        }
+        return PageCursor.toPage(reservations, limit, this::convertToDtos,
+            reservation -> PageCursor.encode(sort,
+                PageCursor.BY_DATE.equals(sort) ? reservation.getDate().toString() : "",
+                reservation.getId()));
+    }
+
+    // Отчётная выгрузка всей таблицы курсором БД; id пользователей догружаются одним
+    // запросом на порцию строк, а не запросом на каждую бронь
+    @Transactional(readOnly = true)
+    public void exportReservations(String format, OutputStream out) throws IOException {
+        Stream<Reservation> reservations = reservationRepository.streamAll();
+        if ("csv".equals(format)) {
+            streamingExporter.writeCsv(reservations, out, RESERVATION_CSV_HEADER,
+                this::toSnapshots,
+                reservation -> Arrays.asList(reservation.id(), reservation.date(),
+                    reservation.coworkingSpaceId(),
+                    StreamingExporter.joinIds(reservation.userIds())));
+        } else {
+            streamingExporter.writeJson(reservations, out, this::convertToDtos);
+        }
+    }
+
     // Update
     @Transactional
     public Optional<ReservationDto> updateReservation(Long id, ReservationDto dto) {
@@ -105,55 +196,113 @@ public class ReservationService {
             throw new BadRequestException("Reservation date cannot be in the past");
         }
 
-        return reservationRepository.findById(id)
+        return reservationRepository.findForUpdate(id)
             .map(existing -> {
-                existing.setDate(dto.getDate());
-
-                if (!existing.getCoworkingSpace().getId().equals(dto.getCoworkingSpaceId())) {
-                    CoworkingSpace space = coworkingSpaceRepository.findById(
-                        dto.getCoworkingSpaceId())
+                ReservationSnapshot previous = toSnapshot(existing);
+                CoworkingSpace space = existing.getCoworkingSpace();
+                if (!space.getId().equals(dto.getCoworkingSpaceId())) {
+                    space = coworkingSpaceRepository.findById(dto.getCoworkingSpaceId())
                         .orElseThrow(() -> new NotFoundException(
                             "Coworking space not found with ID: " + dto.getCoworkingSpaceId()));
-                    existing.setCoworkingSpace(space);
-
-                    if (reservationRepository.existsByDateAndCoworkingSpaceId(
-                        dto.getDate(), dto.getCoworkingSpaceId())) {
-                        throw new BadRequestException(
-                            "New coworking space is already reserved for this date");
-                    }
                 }
 
-                if (!new HashSet<>(existing.getUsers().stream().map(
-                    User::getId).collect(Collectors.toList()))
-                    .containsAll(dto.getUserIds())) {
-                    List<User> users = userRepository.findAllById(dto.getUserIds());
-                    if (users.size() != dto.getUserIds().size()) {
-                        List<Long> foundIds = users.stream().map(User::getId).toList();
-                        List<Long> missingIds = dto.getUserIds().stream()
-                            .filter(userId -> !foundIds.contains(userId))
-                            .toList();
-                        throw new NotFoundException("Users not found with IDs: " + missingIds);
-                    }
-                    existing.setUsers(users);
+                // Прежний день занят самой этой бронью, поэтому проверяем только новый.
+                // Проверка идёт до изменения сущности: иначе автосброс перед запросом
+                // занятости запишет перенос, и бронь найдёт в новом дне саму себя
+                boolean moved = previous.coworkingSpaceId() != dto.getCoworkingSpaceId()
+                    || !previous.date().equals(dto.getDate());
+                if (moved && isReserved(dto.getCoworkingSpaceId(), dto.getDate())) {
+                    throw new BadRequestException(
+                        "New coworking space is already reserved for this date");
+                }
+                existing.setDate(dto.getDate());
+                existing.setCoworkingSpace(space);
+
+                // Состав участников меняется разницей с текущим: удаляются и добавляются
+                // только изменившиеся пользователи, вставки и удаления идут пачками JDBC
+                Set<Long> requested = new HashSet<>(dto.getUserIds());
+                existing.getUsers().removeIf(user -> !requested.contains(user.getId()));
+                for (long userId : previous.userIds()) {
+                    requested.remove(userId);
+                }
+                if (!requested.isEmpty()) {
+                    existing.getUsers().addAll(resolveUsers(requested));
                 }
 
-                Reservation updated = reservationRepository.save(existing);
-                reservationCache.put(updated.getId(), updated); // Обновляем кэш
+                ReservationSnapshot updated = toSnapshot(saveReserved(existing));
+                reservationCache.put(updated.id(), updated); // Обновляем кэш
+                cacheInvalidationService.invalidateRemote(CacheService.RESERVATIONS, updated.id());
+                evictRelated(previous);
+                evictRelated(updated);
+                if (moved) {
+                    updateOccupancy(previous, updated);
+                }
                 return convertToDto(updated);
             });
     }
 
+    // Добавление участников без перезаписи брони: один INSERT на весь список,
+    // уже записанные пользователи пропускаются
+    @Transactional
+    public Optional<ReservationDto> addAttendees(Long id, List<Long> userIds) {
+        return findForAttendees(id).map(previous -> {
+            Set<Long> added = new HashSet<>(userIds);
+            for (long userId : previous.userIds()) {
+                added.remove(userId);
+            }
+            if (added.isEmpty()) {
+                return convertToDto(previous);
+            }
+            Set<Long> found = new HashSet<>(userRepository.findExistingIds(added));
+            List<Long> missingIds = added.stream()
+                .filter(userId -> !found.contains(userId))
+                .sorted()
+                .toList();
+            if (!missingIds.isEmpty()) {
+                throw new NotFoundException("Users not found with IDs: " + missingIds);
+            }
+            reservationRepository.addUsers(id, added);
+            return convertToDto(saveAttendees(previous, LongStream.concat(
+                Arrays.stream(previous.userIds()),
+                added.stream().mapToLong(Long::longValue)).sorted().toArray()));
+        });
+    }
+
+    // Удаление участников одним DELETE; хотя бы один участник у брони остаётся
+    @Transactional
+    public Optional<ReservationDto> removeAttendees(Long id, List<Long> userIds) {
+        return findForAttendees(id).map(previous -> {
+            Set<Long> removed = new HashSet<>(userIds);
+            long[] remaining = Arrays.stream(previous.userIds())
+                .filter(userId -> !removed.contains(userId))
+                .toArray();
+            if (remaining.length == previous.userIds().length) {
+                return convertToDto(previous);
+            }
+            if (remaining.length == 0) {
+                throw new BadRequestException("Reservation must keep at least one user");
+            }
+            reservationRepository.removeUsers(id, removed);
+            return convertToDto(saveAttendees(previous, remaining));
+        });
+    }
+
     // Delete
     @Transactional
     public boolean deleteReservation(Long id) {
         if (id == null || id <= 0) {
             throw new BadRequestException("Invalid reservation ID");
         }
-        if (!reservationRepository.existsById(id)) {
+        Optional<Reservation> existing = reservationRepository.findById(id);
+        if (existing.isEmpty()) {
             return false;
         }
-        reservationRepository.deleteById(id);
+        ReservationSnapshot deleted = toSnapshot(existing.get());
+        reservationRepository.delete(existing.get());
         reservationCache.remove(id); // Удаляем из кэша
+        cacheInvalidationService.invalidate(CacheService.RESERVATIONS, id);
+        evictRelated(deleted);
+        updateOccupancy(deleted, null);
         return true;
     }
 
@@ -170,15 +319,9 @@ public class ReservationService {
             .distinct()
             .toList();
 
-        // Get all users in one query
-        List<User> allUsers = userRepository.findAllById(allUserIds);
-        if (allUsers.size() != allUserIds.size()) {
-            List<Long> foundUserIds = allUsers.stream().map(User::getId).toList();
-            List<Long> missingUserIds = allUserIds.stream()
-                .filter(id -> !foundUserIds.contains(id))
-                .toList();
-            throw new NotFoundException("Users not found with IDs: " + missingUserIds);
-        }
+        // Get all users: cached ones as references, the rest in one query
+        Map<Long, User> usersById = resolveUsers(allUserIds).stream()
+            .collect(Collectors.toMap(User::getId, Function.identity()));
 
         // Get all unique space IDs
         List<Long> spaceIds = dtos.stream()
@@ -187,69 +330,490 @@ public class ReservationService {
             .toList();
 
         // Get all spaces in one query
-        List<CoworkingSpace> spaces = coworkingSpaceRepository.findAllById(spaceIds);
-        if (spaces.size() != spaceIds.size()) {
-            List<Long> foundSpaceIds = spaces.stream().map(CoworkingSpace::getId).toList();
+        Map<Long, CoworkingSpace> spacesById = coworkingSpaceRepository.findAllById(spaceIds)
+            .stream()
+            .collect(Collectors.toMap(CoworkingSpace::getId, Function.identity()));
+        if (spacesById.size() != spaceIds.size()) {
             List<Long> missingSpaceIds = spaceIds.stream()
-                .filter(id -> !foundSpaceIds.contains(id))
+                .filter(id -> !spacesById.containsKey(id))
                 .toList();
             throw new NotFoundException("Coworking spaces not found with IDs: " + missingSpaceIds);
         }
 
-        // Check for existing reservations in one query
-        List<LocalDate> dates = dtos.stream().map(ReservationDto::getDate).toList();
-        List<Reservation> existingReservations = reservationRepository
-            .findByDateInAndCoworkingSpaceIdIn(dates, spaceIds);
+        // Check for existing reservations in the occupancy index and for duplicates in the batch
+        Set<String> requested = new HashSet<>();
+        List<String> conflicts = new ArrayList<>();
+        for (ReservationDto dto : dtos) {
+            String day = "Space ID " + dto.getCoworkingSpaceId() + " on " + dto.getDate();
+            if (!requested.add(day) || isReserved(dto.getCoworkingSpaceId(), dto.getDate())) {
+                conflicts.add(day);
+            }
+        }
 
-        if (!existingReservations.isEmpty()) {
-            List<String> conflicts = existingReservations.stream()
-                .map(r -> "Space ID " + r.getCoworkingSpace().getId() + " on " + r.getDate())
-                .toList();
+        if (!conflicts.isEmpty()) {
             throw new BadRequestException("Some spaces are already reserved for these dates: " + conflicts);
         }
 
-        // Create all reservations
-        List<Reservation> reservations = dtos.stream().map(dto -> {
-            Reservation reservation = new Reservation();
-            reservation.setDate(dto.getDate());
+        // Save in chunks: ids come from the sequence in pools, inserts go out as JDBC batches
+        // and the persistence context is cleared after every chunk, so memory stays bounded
+        List<ReservationSnapshot> savedReservations = new ArrayList<>(dtos.size());
+        for (int from = 0; from < dtos.size(); from += BULK_CHUNK_SIZE) {
+            int to = Math.min(from + BULK_CHUNK_SIZE, dtos.size());
+            List<Reservation> chunk = dtos.subList(from, to).stream()
+                .map(dto -> toEntity(dto, spacesById, usersById))
+                .toList();
+            try {
+                reservationRepository.saveAllAndFlush(chunk);
+            } catch (DataIntegrityViolationException e) {
+                throw translateIntegrityViolation(e,
+                    "Some spaces are already reserved for these dates");
+            }
+            chunk.forEach(reservation -> savedReservations.add(toSnapshot(reservation)));
+            entityManager.clear();
+        }
 
-            CoworkingSpace space = spaces.stream()
-                .filter(s -> s.getId().equals(dto.getCoworkingSpaceId()))
-                .findFirst()
-                .orElseThrow(); // Should never happen due to previous checks
+        // Bulk-created reservations are not cached: a large import would flush the working set
+        savedReservations.forEach(reservation -> {
+            missingReservationCache.remove(reservation.id());
+            evictRelated(reservation);
+            updateOccupancy(null, reservation);
+        });
+        cacheInvalidationService.invalidateRemote(CacheService.RESERVATIONS,
+            savedReservations.stream().map(ReservationSnapshot::id).toList());
 
-            reservation.setCoworkingSpace(space);
+        // Convert to DTOs and return
+        return savedReservations.stream()
+            .map(this::convertToDto)
+            .toList();
+    }
+
+    public void importReservations(InputStream in, OutputStream out) throws IOException {
+        ndjsonImporter.run(in, out, ReservationDto.class, this::importReservationChunk);
+    }
 
-            List<User> users = allUsers.stream()
-                .filter(user -> dto.getUserIds().contains(user.getId()))
+    // Выполняется в транзакции пачки. Пространства и пользователи пачки читаются двумя
+    // запросами, занятость проверяется по индексу; импортированные брони в кэш не кладутся
+    private List<ImportResultDto> importReservationChunk(
+        List<ImportRecord<ReservationDto>> chunk) {
+        Map<Long, CoworkingSpace> spacesById = coworkingSpaceRepository.findAllById(chunk.stream()
+                .map(record -> record.value().getCoworkingSpaceId())
+                .collect(Collectors.toSet())).stream()
+            .collect(Collectors.toMap(CoworkingSpace::getId, Function.identity()));
+        Map<Long, User> usersById = userRepository.findAllById(chunk.stream()
+                .flatMap(record -> record.value().getUserIds().stream())
+                .collect(Collectors.toSet())).stream()
+            .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<ImportResultDto> results = new ArrayList<>(chunk.size());
+        Map<ImportRecord<ReservationDto>, Reservation> accepted = new LinkedHashMap<>();
+        Set<String> requested = new HashSet<>();
+        for (ImportRecord<ReservationDto> record : chunk) {
+            ReservationDto dto = record.value();
+            List<Long> missingUserIds = dto.getUserIds().stream()
+                .filter(id -> !usersById.containsKey(id))
+                .distinct()
                 .toList();
+            if (dto.getId() != null) {
+                results.add(NdjsonImporter.rejected(record,
+                    "ID should not be provided for creation"));
+            } else if (!spacesById.containsKey(dto.getCoworkingSpaceId())) {
+                results.add(NdjsonImporter.rejected(record,
+                    "Coworking space not found with ID: " + dto.getCoworkingSpaceId()));
+            } else if (!missingUserIds.isEmpty()) {
+                results.add(NdjsonImporter.rejected(record,
+                    "Users not found with IDs: " + missingUserIds));
+            } else if (isReserved(dto.getCoworkingSpaceId(), dto.getDate())
+                || !requested.add(dto.getCoworkingSpaceId() + "|" + dto.getDate())) {
+                results.add(NdjsonImporter.rejected(record,
+                    "Coworking space is already reserved for this date"));
+            } else {
+                accepted.put(record, toEntity(dto, spacesById, usersById));
+            }
+        }
+        reservationRepository.saveAllAndFlush(accepted.values());
+
+        List<Long> ids = new ArrayList<>(accepted.size());
+        accepted.forEach((record, reservation) -> {
+            ReservationSnapshot snapshot = toSnapshot(reservation);
+            results.add(NdjsonImporter.created(record, snapshot.id()));
+            missingReservationCache.remove(snapshot.id());
+            evictRelated(snapshot);
+            updateOccupancy(null, snapshot);
+            ids.add(snapshot.id());
+        });
+        cacheInvalidationService.invalidateRemote(CacheService.RESERVATIONS, ids);
+        return results;
+    }
 
-            reservation.setUsers(users);
-            return reservation;
-        }).toList();
+    // Свободные дни пространств за диапазон считаются по индексу занятости: запросы к БД
+    // нужны только для списка id пространств
+    @Transactional(readOnly = true)
+    public AvailabilityDto getAvailability(LocalDate from, LocalDate to, List<Long> spaceIds,
+                                           int limit) {
+        if (!occupancyIndex.covers(from) || !occupancyIndex.covers(to)) {
+            throw new BadRequestException("Date range is outside the availability horizon");
+        }
+        List<Long> ids = spaceIds == null || spaceIds.isEmpty()
+            ? coworkingSpaceRepository.findAllIds()
+            : requireSpaces(spaceIds);
+        int days = (int) (to.toEpochDay() - from.toEpochDay()) + 1;
+
+        List<SpaceAvailabilityDto> spaces = new ArrayList<>(ids.size());
+        List<Long> fullyFree = new ArrayList<>();
+        for (long spaceId : ids) {
+            BitSet occupied = occupancyIndex.occupiedDays(spaceId, from, days,
+                this::loadReservedDates);
+            if (occupied.isEmpty() && fullyFree.size() < limit) {
+                fullyFree.add(spaceId);
+            }
+            spaces.add(convertToDto(spaceId, occupied, from, days));
+        }
 
-        // Save all reservations
-        List<Reservation> savedReservations = reservationRepository.saveAll(reservations);
+        AvailabilityDto dto = new AvailabilityDto();
+        dto.setFrom(from);
+        dto.setTo(to);
+        dto.setSpaces(spaces);
+        dto.setFullyFreeSpaceIds(fullyFree);
+        return dto;
+    }
 
-        // Add to cache
-        savedReservations.forEach(reservation ->
-            reservationCache.put(reservation.getId(), reservation));
+    // Пачка заявок одной полосы в собственной транзакции: отклонённые заявки не мешают
+    // остальным, а если упала вся транзакция (например, день занял другой экземпляр),
+    // заявки повторяются по одной
+    private void bookBatch(List<Request<ReservationDto, ReservationSnapshot>> batch) {
+        TransactionTemplate transaction = new TransactionTemplate(
+            transactionTemplate.getTransactionManager());
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Map<Request<ReservationDto, ReservationSnapshot>, ReservationSnapshot> saved;
+        try {
+            saved = transaction.execute(status -> insertBatch(batch));
+        } catch (DataIntegrityViolationException e) {
+            if (batch.size() == 1) {
+                batch.get(0).fail(translateIntegrityViolation(e,
+                    "Coworking space is already reserved for this date"));
+                return;
+            }
+            batch.stream()
+                .filter(request -> !request.isDone())
+                .forEach(request -> bookBatch(List.of(request)));
+            return;
+        }
+        saved.forEach(Request::complete);
+    }
 
-        // Convert to DTOs and return
-        return savedReservations.stream()
+    private Map<Request<ReservationDto, ReservationSnapshot>, ReservationSnapshot>
+        insertBatch(List<Request<ReservationDto, ReservationSnapshot>> batch) {
+        Map<Request<ReservationDto, ReservationSnapshot>, Reservation> accepted =
+            new LinkedHashMap<>();
+        Set<String> requested = new HashSet<>();
+        for (Request<ReservationDto, ReservationSnapshot> request : batch) {
+            ReservationDto dto = request.payload();
+            String day = dto.getCoworkingSpaceId() + "|" + dto.getDate();
+            try {
+                if (requested.contains(day)
+                    || isReserved(dto.getCoworkingSpaceId(), dto.getDate())) {
+                    throw new BadRequestException(
+                        "Coworking space is already reserved for this date");
+                }
+                Reservation reservation = new Reservation();
+                reservation.setDate(dto.getDate());
+                reservation.setCoworkingSpace(coworkingSpaceRepository
+                    .findById(dto.getCoworkingSpaceId())
+                    .orElseThrow(() -> new NotFoundException("Coworking space not found with ID: "
+                        + dto.getCoworkingSpaceId())));
+                reservation.setUsers(new HashSet<>(resolveUsers(dto.getUserIds())));
+                accepted.put(request, reservation);
+                requested.add(day);
+            } catch (BadRequestException | NotFoundException e) {
+                request.fail(e);
+            }
+        }
+        reservationRepository.saveAllAndFlush(accepted.values());
+
+        Map<Request<ReservationDto, ReservationSnapshot>, ReservationSnapshot> saved =
+            new LinkedHashMap<>();
+        accepted.forEach((request, reservation) -> {
+            ReservationSnapshot snapshot = toSnapshot(reservation);
+            reservationCache.put(snapshot.id(), snapshot); // Добавляем в кэш
+            missingReservationCache.remove(snapshot.id());
+            cacheInvalidationService.invalidateRemote(CacheService.RESERVATIONS, snapshot.id());
+            evictRelated(snapshot);
+            updateOccupancy(null, snapshot);
+            saved.put(request, snapshot);
+        });
+        return saved;
+    }
+
+    // Строка брони блокируется до конца транзакции: параллельные изменения состава
+    // читают участников только после коммита предыдущего. Текущие участники читаются
+    // запросом id, сама коллекция users не загружается
+    private Optional<ReservationSnapshot> findForAttendees(Long id) {
+        if (id == null || id <= 0) {
+            throw new BadRequestException("Invalid reservation ID");
+        }
+        return reservationRepository.findForUpdate(id)
+            .map(reservation -> toSnapshots(List.of(reservation)).get(0));
+    }
+
+    // Кэши сбрасываются и для прежнего, и для нового состава участников
+    private ReservationSnapshot saveAttendees(ReservationSnapshot previous, long[] userIds) {
+        ReservationSnapshot updated = new ReservationSnapshot(previous.id(), previous.date(),
+            previous.coworkingSpaceId(), userIds);
+        reservationCache.put(updated.id(), updated);
+        cacheInvalidationService.invalidateRemote(CacheService.RESERVATIONS, updated.id());
+        evictRelated(previous);
+        evictRelated(updated);
+        return updated;
+    }
+
+    // Индекс занятости заполняется при старте двумя запросами; пространства без броней
+    // загружаются пустыми, чтобы первая проверка по ним тоже не ходила в БД
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOccupancy() {
+        long stamp = occupancyIndex.stamp();
+        Map<Long, List<LocalDate>> occupied = new HashMap<>();
+        coworkingSpaceRepository.findAllIds().forEach(id -> occupied.put(id, new ArrayList<>()));
+        for (Object[] row : reservationRepository.findReservedDays(occupancyIndex.getBaseDate())) {
+            occupied.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                .add((LocalDate) row[1]);
+        }
+        occupancyIndex.loadAll(occupied, stamp);
+    }
+
+    // Занятость дня проверяется по индексу в памяти; в БД идём только за датами вне
+    // горизонта индекса и при первой проверке ещё не загруженного пространства.
+    // При несброшенных изменениях в транзакции записи пространство не загружается в индекс:
+    // автосброс покажет запросу незакоммиченные строки, которые могут откатиться
+    private boolean isReserved(long spaceId, LocalDate date) {
+        if (!occupancyIndex.covers(date)
+            || !occupancyIndex.isLoaded(spaceId) && hasPendingChanges()) {
+            return reservationRepository.existsByDateAndCoworkingSpaceId(date, spaceId);
+        }
+        return occupancyIndex.isOccupied(spaceId, date, this::loadReservedDates);
+    }
+
+    private boolean hasPendingChanges() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+            && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+            && entityManager.unwrap(Session.class).isDirty();
+    }
+
+    private List<LocalDate> loadReservedDates(long spaceId) {
+        return reservationRepository.findReservedDates(spaceId, occupancyIndex.getBaseDate());
+    }
+
+    // Пространства из кэша считаются существующими, остальные проверяются одним запросом
+    private List<Long> requireSpaces(List<Long> spaceIds) {
+        List<Long> ids = spaceIds.stream().distinct().sorted().toList();
+        CacheLookup<CoworkingSpaceSnapshot> cached = coworkingSpaceCache.getAll(ids);
+        if (!cached.missingIds().isEmpty()) {
+            Set<Long> found = new HashSet<>(
+                coworkingSpaceRepository.findExistingIds(cached.missingIds()));
+            List<Long> missingIds = cached.missingIds().stream()
+                .filter(id -> !found.contains(id))
+                .toList();
+            if (!missingIds.isEmpty()) {
+                throw new NotFoundException("Coworking spaces not found with IDs: " + missingIds);
+            }
+        }
+        return ids;
+    }
+
+    // Бронь того же дня, прошедшая проверку параллельно, отсекается уникальным ограничением
+    private Reservation saveReserved(Reservation reservation) {
+        try {
+            return reservationRepository.saveAndFlush(reservation);
+        } catch (DataIntegrityViolationException e) {
+            throw translateIntegrityViolation(e,
+                "Coworking space is already reserved for this date");
+        }
+    }
+
+    // Только нарушение уникальности (пространство, дата) означает занятый день. Нарушение
+    // внешнего ключа — пространство или пользователь (в том числе взятый из кэша ссылкой)
+    // удалены параллельно; прочие ошибки пробрасываются как есть
+    private static RuntimeException translateIntegrityViolation(
+        DataIntegrityViolationException e, String reservedMessage) {
+        String sqlState = sqlState(e);
+        if (UNIQUE_VIOLATION.equals(sqlState)) {
+            return new BadRequestException(reservedMessage);
+        }
+        if (FOREIGN_KEY_VIOLATION.equals(sqlState)) {
+            return new NotFoundException("Coworking space or user not found");
+        }
+        return e;
+    }
+
+    // При пакетной вставке причина лежит в цепочке getNextException у BatchUpdateException
+    private static String sqlState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql) {
+                for (SQLException next = sql; next != null; next = next.getNextException()) {
+                    if (next.getSQLState() != null) {
+                        return next.getSQLState();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // Индекс меняется только после коммита: откаченная бронь не должна занимать день.
+    // Другие экземпляры перечитают затронутые пространства при следующей проверке
+    private void updateOccupancy(ReservationSnapshot released, ReservationSnapshot reserved) {
+        Runnable apply = () -> {
+            if (released != null) {
+                occupancyIndex.release(released.coworkingSpaceId(), released.date());
+            }
+            if (reserved != null) {
+                occupancyIndex.reserve(reserved.coworkingSpaceId(), reserved.date());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        apply.run();
+                    }
+                });
+        } else {
+            apply.run();
+        }
+        Set<Long> spaceIds = new HashSet<>();
+        if (released != null) {
+            spaceIds.add(released.coworkingSpaceId());
+        }
+        if (reserved != null) {
+            spaceIds.add(reserved.coworkingSpaceId());
+        }
+        cacheInvalidationService.invalidateRemote(CacheService.OCCUPANCY, spaceIds);
+    }
+
+    // Пользователи из кэша подставляются ссылками без запроса, остальные — одним findAllById
+    private List<User> resolveUsers(Collection<Long> userIds) {
+        CacheLookup<UserSnapshot> cached = userCache.getAll(userIds);
+        List<User> users = new ArrayList<>(userRepository.findAllById(cached.missingIds()));
+        if (users.size() != cached.missingIds().size()) {
+            Set<Long> foundIds = users.stream().map(User::getId).collect(Collectors.toSet());
+            List<Long> missingIds = cached.missingIds().stream()
+                .filter(id -> !foundIds.contains(id))
+                .toList();
+            throw new NotFoundException("Users not found with IDs: " + missingIds);
+        }
+        cached.hits().keySet().forEach(id -> users.add(userRepository.getReferenceById(id)));
+        return users;
+    }
+
+    // Снимки пользователей и пространства хранят id бронирований, поэтому сбрасываем их,
+    // как и результаты запросов пользователей по дате и пространству этого бронирования
+    private void evictRelated(ReservationSnapshot reservation) {
+        for (long userId : reservation.userIds()) {
+            userCache.remove(userId);
+        }
+        coworkingSpaceCache.remove(reservation.coworkingSpaceId());
+        usersByDateCache.remove(reservation.date().toEpochDay());
+        usersBySpaceCache.remove(reservation.coworkingSpaceId());
+        cacheInvalidationService.invalidate(CacheService.USERS,
+            Arrays.stream(reservation.userIds()).boxed().toList());
+        cacheInvalidationService.invalidate(CacheService.SPACES, reservation.coworkingSpaceId());
+        cacheInvalidationService.invalidate(CacheService.USERS_BY_DATE,
+            reservation.date().toEpochDay());
+        cacheInvalidationService.invalidate(CacheService.USERS_BY_SPACE,
+            reservation.coworkingSpaceId());
+    }
+
+    // Загрузчик для кэша: открывает свою транзакцию, потому что фоновое обновление идёт
+    // вне транзакции запроса; недавно не найденный id повторно в БД не запрашивается
+    private ReservationSnapshot loadReservation(long id) {
+        if (missingReservationCache.contains(id)) {
+            return null;
+        }
+        ReservationSnapshot reservation = transactionTemplate.execute(status -> reservationRepository.findById(id)
+            .map(this::toSnapshot)
+            .orElse(null));
+        if (reservation == null) {
+            missingReservationCache.put(id);
+        }
+        return reservation;
+    }
+
+    // Пространства и пользователи уже загружены и проверены, здесь только поиск по id
+    private Reservation toEntity(ReservationDto dto, Map<Long, CoworkingSpace> spacesById,
+                                 Map<Long, User> usersById) {
+        Reservation reservation = new Reservation();
+        reservation.setDate(dto.getDate());
+        reservation.setCoworkingSpace(spacesById.get(dto.getCoworkingSpaceId()));
+        reservation.setUsers(dto.getUserIds().stream()
+            .map(usersById::get)
+            .collect(Collectors.toCollection(HashSet::new)));
+        return reservation;
+    }
+
+    // Id пользователей всего набора броней — одним запросом по IN; id пространства
+    // берётся из внешнего ключа без загрузки самого пространства
+    private List<ReservationSnapshot> toSnapshots(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, long[]> userIds = IdPairs.group(reservationRepository
+            .findUserIdPairs(reservations.stream().map(Reservation::getId).toList()));
+        return reservations.stream()
+            .map(reservation -> toSnapshot(reservation,
+                userIds.getOrDefault(reservation.getId(), new long[0])))
+            .toList();
+    }
+
+    private List<ReservationDto> convertToDtos(List<Reservation> reservations) {
+        return toSnapshots(reservations).stream()
             .map(this::convertToDto)
             .toList();
     }
 
+    private ReservationSnapshot toSnapshot(Reservation reservation, long[] userIds) {
+        return new ReservationSnapshot(
+            reservation.getId(),
+            reservation.getDate(),
+            reservation.getCoworkingSpace().getId(),
+            userIds
+        );
+    }
+
+    private ReservationSnapshot toSnapshot(Reservation reservation) {
+        return toSnapshot(reservation,
+            reservation.getUsers().stream().mapToLong(User::getId).toArray());
+    }
+
+    // Свободные дни — промежутки между установленными битами занятости
+    private SpaceAvailabilityDto convertToDto(long spaceId, BitSet occupied, LocalDate from,
+                                              int days) {
+        List<DateRangeDto> ranges = new ArrayList<>();
+        int start = occupied.nextClearBit(0);
+        while (start < days) {
+            int next = occupied.nextSetBit(start);
+            int end = next < 0 ? days : next;
+            DateRangeDto range = new DateRangeDto();
+            range.setFrom(from.plusDays(start));
+            range.setTo(from.plusDays(end - 1L));
+            ranges.add(range);
+            start = occupied.nextClearBit(end);
+        }
+        SpaceAvailabilityDto dto = new SpaceAvailabilityDto();
+        dto.setCoworkingSpaceId(spaceId);
+        dto.setFreeDays(days - occupied.cardinality());
+        dto.setFreeRanges(ranges);
+        return dto;
+    }
+
     // Convert to DTO
-    private ReservationDto convertToDto(Reservation reservation) {
+    private ReservationDto convertToDto(ReservationSnapshot reservation) {
         ReservationDto dto = new ReservationDto();
-        dto.setId(reservation.getId());
-        dto.setDate(reservation.getDate());
-        dto.setCoworkingSpaceId(reservation.getCoworkingSpace().getId());
+        dto.setId(reservation.id());
+        dto.setDate(reservation.date());
+        dto.setCoworkingSpaceId(reservation.coworkingSpaceId());
         dto.setUserIds(
-            reservation.getUsers().stream()
-                .map(User::getId)
+            Arrays.stream(reservation.userIds())
+                .boxed()
                 .collect(Collectors.toList())
         );
         return dto;
@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// Выгрузка таблицы целиком: строки идут из курсора БД и сразу пишутся в ответ, контекст
+// персистентности периодически очищается. Память не зависит от размера таблицы.
+// Вызывается внутри транзакции чтения, иначе драйвер PostgreSQL не использует fetch size
+@Component
+@RequiredArgsConstructor
+public class StreamingExporter {
+
+    // Совпадает с fetch size в запросах репозиториев
+    static final int CLEAR_INTERVAL = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    private interface ChunkWriter<E> {
+        void write(List<E> chunk) throws IOException;
+    }
+
+    // JSON-массив; mapper превращает порцию сущностей в DTO, пока они ещё в контексте,
+    // и может догрузить связанные id одним запросом на всю порцию
+    <E> void writeJson(Stream<E> rows, OutputStream out, Function<List<E>, List<?>> mapper)
+        throws IOException {
+        ObjectWriter writer = objectMapper.writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator json = objectMapper.createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartArray();
+            forEachChunk(rows, chunk -> {
+                for (Object value : mapper.apply(chunk)) {
+                    writer.writeValue(json, value);
+                }
+                json.flush();
+            });
+            json.writeEndArray();
+        }
+    }
+
+    // CSV с заголовком; columns возвращает значения столбцов строки в порядке header
+    <E, T> void writeCsv(Stream<E> rows, OutputStream out, List<String> header,
+                         Function<List<E>, List<T>> mapper, Function<T, List<?>> columns)
+        throws IOException {
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        // Заголовок и хвост последней порции уходят и при пустой таблице, и при ошибке
+        try {
+            writeCsvRow(csv, header);
+            forEachChunk(rows, chunk -> {
+                for (T value : mapper.apply(chunk)) {
+                    writeCsvRow(csv, columns.apply(value));
+                }
+                csv.flush();
+            });
+        } finally {
+            csv.flush();
+        }
+    }
+
+    // Порции по CLEAR_INTERVAL строк; после записи порции контекст очищается
+    private <E> void forEachChunk(Stream<E> rows, ChunkWriter<E> writer) throws IOException {
+        try (rows) {
+            List<E> chunk = new ArrayList<>(CLEAR_INTERVAL);
+            Iterator<E> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CLEAR_INTERVAL || !iterator.hasNext()) {
+                    writer.write(chunk);
+                    entityManager.clear();
+                    chunk.clear();
+                }
+            }
+        }
+    }
+
+    // Список id в одном поле CSV
+    static String joinIds(long[] ids) {
+        return Arrays.stream(ids)
+            .mapToObj(Long::toString)
+            .collect(Collectors.joining(";"));
+    }
+
+    private static void writeCsvRow(Writer csv, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                csv.write(',');
+            }
+            csv.write(escapeCsv(values.get(i)));
+        }
+        csv.write("\r\n");
+    }
+
+    // Поле с запятой, кавычкой или переводом строки берётся в кавычки (RFC 4180)
+    private static String escapeCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0
+            && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
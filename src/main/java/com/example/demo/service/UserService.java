@@ -1,26 +1,58 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.CacheLookup;
+import com.example.demo.cache.MissingUserCache;
 import com.example.demo.cache.UserCache;
+import com.example.demo.cache.UserSnapshot;
+import com.example.demo.cache.UsersByDateCache;
+import com.example.demo.cache.UsersBySpaceCache;
+import com.example.demo.dto.ImportResultDto;
+import com.example.demo.dto.PageDto;
 import com.example.demo.dto.UserDto;
 import com.example.demo.entity.Reservation;
 import com.example.demo.entity.User;
 import com.example.demo.exception.BadRequestException;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.service.NdjsonImporter.ImportRecord;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDate;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    private static final List<String> USER_CSV_HEADER = List.of(
+        "id", "firstName", "middleName", "lastName", "email", "reservationIds");
+
     private final UserRepository userRepository;
     private final UserCache userCache;
+    private final MissingUserCache missingUserCache;
+    private final UsersByDateCache usersByDateCache;
+    private final UsersBySpaceCache usersBySpaceCache;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final TransactionTemplate transactionTemplate;
+    private final NdjsonImporter ndjsonImporter;
+    private final StreamingExporter streamingExporter;
 
     // Create
     @Transactional
@@ -36,35 +68,72 @@ public class UserService {
         user.setEmail(dto.getEmail());
         user.setPassword(dto.getPassword());
 
-        User saved = userRepository.save(user);
-        userCache.put(saved.getId(), saved); // Добавляем в кэш
+        UserSnapshot saved = toSnapshot(userRepository.save(user));
+        userCache.put(saved.id(), saved); // Добавляем в кэш
+        missingUserCache.remove(saved.id());
+        cacheInvalidationService.invalidateRemote(CacheService.USERS, saved.id());
         return Optional.of(convertToDto(saved));
     }
 
     // Read
     @Transactional(readOnly = true)
     public Optional<UserDto> getUserById(Long id) {
-        User cachedUser = userCache.get(id); // Проверяем кэш
-        if (cachedUser != null) {
-            return Optional.of(convertToDto(cachedUser));
-        }
-
-        return userRepository.findById(id)
-            .map(user -> {
-                userCache.put(user.getId(), user); // Кэшируем результат
-                return convertToDto(user);
-            });
+        // Одновременные промахи по одному id разделяют один запрос к БД
+        UserSnapshot user = userCache.getOrLoad(id, this::loadUser);
+        return Optional.ofNullable(user).map(this::convertToDto);
     }
 
     @Transactional(readOnly = true)
-    public List<UserDto> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        users.forEach(user -> userCache.put(user.getId(), user)); // Кэшируем всех пользователей
-        return users.stream()
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        // Один проход по кэшу, промахи догружаются одним запросом
+        CacheLookup<UserSnapshot> lookup = userCache.getAll(ids);
+        Map<Long, UserSnapshot> found = new HashMap<>(lookup.hits());
+        List<Long> toLoad = lookup.missingIds().stream()
+            .filter(id -> !missingUserCache.contains(id))
+            .toList();
+        if (!toLoad.isEmpty()) {
+            Map<Long, UserSnapshot> loaded = toSnapshots(userRepository.findAllById(toLoad))
+                .stream()
+                .collect(Collectors.toMap(UserSnapshot::id, Function.identity()));
+            userCache.putAll(loaded);
+            found.putAll(loaded);
+            missingUserCache.putAll(toLoad.stream()
+                .filter(id -> !loaded.containsKey(id))
+                .toList());
+        }
+        return ids.stream()
+            .distinct()
+            .map(found::get)
+            .filter(Objects::nonNull)
             .map(this::convertToDto)
             .toList();
     }
 
+    // Постраничный просмотр не кладёт пользователей в кэш: обход списка не должен
+    // вытеснять часто запрашиваемые записи
+    @Transactional(readOnly = true)
+    public PageDto<UserDto> getUsersPage(String cursor, int limit) {
+        long afterId = cursor == null ? 0 : PageCursor.decode(cursor, PageCursor.BY_ID).id();
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(afterId,
+            Limit.of(limit + 1));
+        return PageCursor.toPage(users, limit, this::convertToDtos,
+            user -> PageCursor.encode(PageCursor.BY_ID, "", user.getId()));
+    }
+
+    // Полная выгрузка в JSON или CSV; пароль не выгружается, в кэш ничего не попадает
+    @Transactional(readOnly = true)
+    public void exportUsers(String format, OutputStream out) throws IOException {
+        Stream<User> users = userRepository.streamAll();
+        if ("csv".equals(format)) {
+            streamingExporter.writeCsv(users, out, USER_CSV_HEADER, this::toSnapshots,
+                user -> Arrays.asList(user.id(), user.firstName(), user.middleName(),
+                    user.lastName(), user.email(),
+                    StreamingExporter.joinIds(user.reservationIds())));
+        } else {
+            streamingExporter.writeJson(users, out, this::convertToDtos);
+        }
+    }
+
     // Update
     @Transactional
     public Optional<UserDto> updateUser(Long id, UserDto dto) {
@@ -82,8 +151,9 @@ public class UserService {
                 if (dto.getPassword() != null && !dto.getPassword().isEmpty()) {
                     existing.setPassword(dto.getPassword());
                 }
-                User updated = userRepository.save(existing);
-                userCache.put(updated.getId(), updated); // Обновляем кэш
+                UserSnapshot updated = toSnapshot(userRepository.save(existing));
+                userCache.put(updated.id(), updated); // Обновляем кэш
+                cacheInvalidationService.invalidateRemote(CacheService.USERS, updated.id());
                 return convertToDto(updated);
             });
     }
@@ -96,6 +166,7 @@ public class UserService {
         }
         userRepository.deleteById(id);
         userCache.remove(id); // Удаляем из кэша
+        cacheInvalidationService.invalidate(CacheService.USERS, id);
         return true;
     }
 
@@ -104,11 +175,11 @@ public class UserService {
         if (date == null) {
             throw new BadRequestException("Date cannot be null");
         }
-        List<User> users = userRepository.findUsersWithReservationsOnDate(date);
-        users.forEach(user -> userCache.put(user.getId(), user)); // Кэшируем пользователей
-        return users.stream()
-            .map(this::convertToDto)
-            .toList();
+        // Кэшируется только список id, его сбрасывают изменения бронирований на эту дату
+        long[] userIds = usersByDateCache.getOrLoad(date.toEpochDay(), key ->
+            transactionTemplate.execute(status -> toIdArray(
+                userRepository.findUserIdsWithReservationsOnDate(LocalDate.ofEpochDay(key)))));
+        return getUsersByIds(Arrays.stream(userIds).boxed().toList());
     }
 
     @Transactional(readOnly = true)
@@ -116,11 +187,11 @@ public class UserService {
         if (coworkingSpaceId == null || coworkingSpaceId <= 0) {
             throw new BadRequestException("Invalid coworking space ID");
         }
-        List<User> users = userRepository.findUsersByCoworkingSpace(coworkingSpaceId);
-        users.forEach(user -> userCache.put(user.getId(), user)); // Кэшируем пользователей
-        return users.stream()
-            .map(this::convertToDto)
-            .toList();
+        // Кэшируется только список id, его сбрасывают изменения бронирований пространства
+        long[] userIds = usersBySpaceCache.getOrLoad(coworkingSpaceId, key ->
+            transactionTemplate.execute(status -> toIdArray(
+                userRepository.findUserIdsByCoworkingSpace(key))));
+        return getUsersByIds(Arrays.stream(userIds).boxed().toList());
     }
 
     @Transactional
@@ -136,21 +207,20 @@ public class UserService {
         }
 
         // Convert all DTOs to entities
-        List<User> users = dtos.stream().map(dto -> {
-            User user = new User();
-            user.setFirstName(dto.getFirstName());
-            user.setMiddleName(dto.getMiddleName());
-            user.setLastName(dto.getLastName());
-            user.setEmail(dto.getEmail());
-            user.setPassword(dto.getPassword());
-            return user;
-        }).toList();
+        List<User> users = dtos.stream().map(this::toEntity).toList();
 
         // Save all users
-        List<User> savedUsers = userRepository.saveAll(users);
+        List<UserSnapshot> savedUsers = userRepository.saveAll(users).stream()
+            .map(this::toSnapshot)
+            .toList();
 
         // Add to cache
-        savedUsers.forEach(user -> userCache.put(user.getId(), user));
+        savedUsers.forEach(user -> {
+            userCache.put(user.id(), user);
+            missingUserCache.remove(user.id());
+        });
+        cacheInvalidationService.invalidateRemote(CacheService.USERS,
+            savedUsers.stream().map(UserSnapshot::id).toList());
 
         // Convert to DTOs and return
         return savedUsers.stream()
@@ -158,19 +228,122 @@ public class UserService {
             .toList();
     }
 
-    private UserDto convertToDto(User user) {
+    // Результат по каждой строке пишется в out по мере обработки пачек
+    public void importUsers(InputStream in, OutputStream out) throws IOException {
+        ndjsonImporter.run(in, out, UserDto.class, this::importUserChunk);
+    }
+
+    // Выполняется в транзакции пачки. Импортированные пользователи в кэш не кладутся,
+    // чтобы большой импорт не вытеснил горячие записи
+    private List<ImportResultDto> importUserChunk(List<ImportRecord<UserDto>> chunk) {
+        Set<String> takenEmails = userRepository.findByEmailIn(chunk.stream()
+                .map(record -> record.value().getEmail())
+                .toList()).stream()
+            .map(User::getEmail)
+            .collect(Collectors.toCollection(HashSet::new));
+        List<ImportResultDto> results = new ArrayList<>(chunk.size());
+        Map<ImportRecord<UserDto>, User> accepted = new LinkedHashMap<>();
+        for (ImportRecord<UserDto> record : chunk) {
+            UserDto dto = record.value();
+            if (dto.getId() != null) {
+                results.add(NdjsonImporter.rejected(record,
+                    "ID should not be provided for creation"));
+            } else if (!takenEmails.add(dto.getEmail())) {
+                results.add(NdjsonImporter.rejected(record,
+                    "Email already exists: " + dto.getEmail()));
+            } else {
+                accepted.put(record, toEntity(dto));
+            }
+        }
+        userRepository.saveAllAndFlush(accepted.values());
+        List<Long> ids = new ArrayList<>(accepted.size());
+        accepted.forEach((record, user) -> {
+            results.add(NdjsonImporter.created(record, user.getId()));
+            missingUserCache.remove(user.getId());
+            ids.add(user.getId());
+        });
+        cacheInvalidationService.invalidateRemote(CacheService.USERS, ids);
+        return results;
+    }
+
+    // Загрузчик для кэша: открывает свою транзакцию, потому что фоновое обновление идёт
+    // вне транзакции запроса; недавно не найденный id повторно в БД не запрашивается
+    private UserSnapshot loadUser(long id) {
+        if (missingUserCache.contains(id)) {
+            return null;
+        }
+        UserSnapshot user = transactionTemplate.execute(status -> userRepository.findById(id)
+            .map(this::toSnapshot)
+            .orElse(null));
+        if (user == null) {
+            missingUserCache.put(id);
+        }
+        return user;
+    }
+
+    private static long[] toIdArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private User toEntity(UserDto dto) {
+        User user = new User();
+        user.setFirstName(dto.getFirstName());
+        user.setMiddleName(dto.getMiddleName());
+        user.setLastName(dto.getLastName());
+        user.setEmail(dto.getEmail());
+        user.setPassword(dto.getPassword());
+        return user;
+    }
+
+    // Снимки набора пользователей: id бронирований всех пользователей берутся одним
+    // запросом, ленивая коллекция reservations не трогается
+    private List<UserSnapshot> toSnapshots(List<User> users) {
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, long[]> reservationIds = IdPairs.group(userRepository
+            .findReservationIdPairs(users.stream().map(User::getId).toList()));
+        return users.stream()
+            .map(user -> toSnapshot(user,
+                reservationIds.getOrDefault(user.getId(), new long[0])))
+            .toList();
+    }
+
+    private List<UserDto> convertToDtos(List<User> users) {
+        return toSnapshots(users).stream()
+            .map(this::convertToDto)
+            .toList();
+    }
+
+    private UserSnapshot toSnapshot(User user, long[] reservationIds) {
+        return new UserSnapshot(
+            user.getId(),
+            user.getFirstName(),
+            user.getMiddleName(),
+            user.getLastName(),
+            user.getEmail(),
+            reservationIds
+        );
+    }
+
+    // Для одной сущности: коллекция либо уже загружена, либо догружается одним запросом
+    private UserSnapshot toSnapshot(User user) {
+        return toSnapshot(user, user.getReservations() == null
+            ? new long[0]
+            : user.getReservations().stream().mapToLong(Reservation::getId).toArray());
+    }
+
+    private UserDto convertToDto(UserSnapshot user) {
         UserDto dto = new UserDto();
-        dto.setId(user.getId());
-        dto.setFirstName(user.getFirstName());
-        dto.setMiddleName(user.getMiddleName());
-        dto.setLastName(user.getLastName());
-        dto.setEmail(user.getEmail());
+        dto.setId(user.id());
+        dto.setFirstName(user.firstName());
+        dto.setMiddleName(user.middleName());
+        dto.setLastName(user.lastName());
+        dto.setEmail(user.email());
         dto.setPassword(null);
         dto.setReservationIds(
-            Optional.ofNullable(user.getReservations())
-                .orElseGet(Collections::emptyList)
-                .stream()
-                .map(Reservation::getId)
+            Arrays.stream(user.reservationIds())
+                .boxed()
                 .collect(Collectors.toList())
         );
         return dto;
@@ -0,0 +1,94 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheSnapshotFileTest {
+
+    private static final SnapshotCodec<String> CODEC = new SnapshotCodec<>() {
+        @Override
+        public int size(String value) {
+            return SnapshotCodec.sizeOf(value);
+        }
+
+        @Override
+        public void write(String value, ByteBuffer buffer) {
+            SnapshotCodec.putString(buffer, value);
+        }
+
+        @Override
+        public String read(ByteBuffer buffer) {
+            return SnapshotCodec.getString(buffer);
+        }
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void valuesSurviveWriteThenRead() throws IOException {
+        Path path = directory.resolve("users.snapshot");
+        CacheSnapshotFile.write(path, entries(), CODEC);
+
+        CacheSnapshotFile.Contents<String> contents = CacheSnapshotFile.read(path, CODEC);
+        assertEquals(List.of(3L, 1L, 2L), contents.keys());
+        assertEquals(entries(), contents.values());
+        assertTrue(Files.notExists(path.resolveSibling("users.snapshot.tmp")));
+    }
+
+    @Test
+    void keysOnlySnapshotHasNoValues() throws IOException {
+        Path path = directory.resolve("users.snapshot");
+        CacheSnapshotFile.write(path, entries(), null);
+
+        CacheSnapshotFile.Contents<String> contents = CacheSnapshotFile.read(path, CODEC);
+        assertEquals(List.of(3L, 1L, 2L), contents.keys());
+        assertTrue(contents.values().isEmpty());
+    }
+
+    @Test
+    void truncatedSnapshotIsRejected() throws IOException {
+        Path path = directory.resolve("users.snapshot");
+        CacheSnapshotFile.write(path, entries(), CODEC);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertThrows(IOException.class, () -> CacheSnapshotFile.read(path, CODEC));
+        Files.write(path, Arrays.copyOf(bytes, 6));
+        assertThrows(IOException.class, () -> CacheSnapshotFile.read(path, CODEC));
+    }
+
+    @Test
+    void corruptedSnapshotIsRejected() throws IOException {
+        Path path = directory.resolve("users.snapshot");
+        Files.write(path, "not a cache snapshot".getBytes());
+        assertThrows(IOException.class, () -> CacheSnapshotFile.read(path, CODEC));
+
+        // Длина первого значения указывает за конец файла
+        CacheSnapshotFile.write(path, entries(), CODEC);
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putInt(Integer.BYTES * 3 + 1 + Long.BYTES, 1 << 20);
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> CacheSnapshotFile.read(path, CODEC));
+    }
+
+    private static Map<Long, String> entries() {
+        Map<Long, String> entries = new LinkedHashMap<>();
+        entries.put(3L, "three");
+        entries.put(1L, "один");
+        entries.put(2L, null);
+        return entries;
+    }
+}
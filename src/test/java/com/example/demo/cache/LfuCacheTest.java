@@ -0,0 +1,274 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class LfuCacheTest {
+
+    private static final class TestCache extends LfuCache<String> {
+        TestCache(long maximum) {
+            super(maximum, CachePolicy.WINDOW_TINY_LFU, null, null, null, null);
+        }
+
+        TestCache(long maximum, SnapshotCodec<String> codec, long offHeapBytes) {
+            super(maximum, CachePolicy.WINDOW_TINY_LFU, null, null, null, null, codec,
+                offHeapBytes);
+        }
+
+        TestCache(Duration expireAfterWrite, Duration refreshAfterWrite, Executor executor) {
+            super(100, CachePolicy.WINDOW_TINY_LFU, null, expireAfterWrite, refreshAfterWrite,
+                executor);
+        }
+    }
+
+    private static final SnapshotCodec<String> CODEC = new SnapshotCodec<>() {
+        @Override
+        public int size(String value) {
+            return SnapshotCodec.sizeOf(value);
+        }
+
+        @Override
+        public void write(String value, ByteBuffer buffer) {
+            SnapshotCodec.putString(buffer, value);
+        }
+
+        @Override
+        public String read(ByteBuffer buffer) {
+            return SnapshotCodec.getString(buffer);
+        }
+    };
+
+    @Test
+    void putGetRemoveAcrossSegments() {
+        TestCache cache = new TestCache(1000);
+        for (long id = 1; id <= 100; id++) {
+            cache.put(id, "v" + id);
+        }
+        for (long id = 1; id <= 100; id++) {
+            assertEquals("v" + id, cache.get(id));
+        }
+        cache.remove(7L);
+        cache.removeAll(List.of(8L, 9L, 500L));
+        assertNull(cache.get(7L));
+        assertNull(cache.get(8L));
+        assertNull(cache.get(9L));
+        assertEquals(97, cache.getEstimatedSize());
+    }
+
+    @Test
+    void putAllAbsentKeepsLiveEntriesWithoutCountingReads() {
+        TestCache cache = new TestCache(100);
+        cache.put(1L, "live");
+
+        cache.putAllAbsent(Map.of(1L, "snapshot", 2L, "snapshot"));
+
+        assertEquals(0, cache.stats().hitCount());
+        assertEquals(0, cache.stats().missCount());
+        assertEquals(2, cache.stats().putCount());
+        assertEquals("live", cache.get(1L));
+        assertEquals("snapshot", cache.get(2L));
+    }
+
+    @Test
+    void putAllAbsentKeepsOffHeapEntryInSecondLevel() {
+        TestCache cache = new TestCache(1, CODEC, 1600);
+        cache.put(1L, "live-1");
+        cache.put(2L, "live-2");
+        assertEquals(1, cache.getOffHeapSize());
+
+        cache.putAllAbsent(Map.of(1L, "snapshot", 2L, "snapshot"));
+
+        assertEquals(1, cache.getOffHeapSize());
+        assertEquals(0, cache.stats().offHeapHitCount());
+        assertEquals("live-1", cache.get(1L));
+        assertEquals("live-2", cache.get(2L));
+    }
+
+    @Test
+    void putAllAbsentReplacesExpiredEntry() throws Exception {
+        TestCache cache = new TestCache(Duration.ofMillis(50), null, null);
+        cache.put(1L, "expired");
+        Thread.sleep(80);
+
+        cache.putAllAbsent(Map.of(1L, "snapshot"));
+        assertEquals("snapshot", cache.get(1L));
+    }
+
+    @Test
+    void concurrentWritersKeepEveryKey() throws Exception {
+        TestCache cache = new TestCache(100_000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long from = t * 1000L;
+                futures.add(pool.submit(() -> {
+                    for (long id = from; id < from + 1000; id++) {
+                        cache.put(id, Long.toString(id));
+                        assertEquals(Long.toString(id), cache.get(id));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        for (long id = 0; id < 8000; id++) {
+            assertEquals(Long.toString(id), cache.get(id));
+        }
+        assertEquals(8000, cache.getEstimatedSize());
+    }
+
+    @Test
+    void setMaximumShrinksCacheImmediately() {
+        TestCache cache = new TestCache(1000);
+        for (long id = 1; id <= 500; id++) {
+            cache.put(id, "v" + id);
+        }
+        cache.setMaximum(10);
+
+        assertEquals(10, cache.getMaximum());
+        assertTrue(cache.getEstimatedSize() <= 10);
+        assertEquals(500 - cache.getEstimatedSize(), cache.stats().evictionCount());
+
+        cache.setMaximum(0);
+        assertEquals(0, cache.getEstimatedSize());
+        cache.put(1L, "v1");
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void setMaximumRejectsNegativeValue() {
+        TestCache cache = new TestCache(10);
+        assertThrows(IllegalArgumentException.class, () -> cache.setMaximum(-1));
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        TestCache cache = new TestCache(100);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(8);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    ready.countDown();
+                    return cache.getOrLoad(42L, id -> {
+                        loads.incrementAndGet();
+                        await(release);
+                        return "loaded";
+                    });
+                }));
+            }
+            ready.await(10, TimeUnit.SECONDS);
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> future : futures) {
+                assertEquals("loaded", future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals("loaded", cache.get(42L));
+    }
+
+    @Test
+    void failedOrEmptyLoadIsNotCached() {
+        TestCache cache = new TestCache(100);
+        AtomicInteger loads = new AtomicInteger();
+        assertThrows(IllegalStateException.class, () -> cache.getOrLoad(1L, id -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("boom");
+        }));
+        assertNull(cache.getOrLoad(1L, id -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals("v1", cache.getOrLoad(1L, id -> {
+            loads.incrementAndGet();
+            return "v1";
+        }));
+        assertEquals("v1", cache.getOrLoad(1L, id -> "v2"));
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.stats().loadFailureCount());
+        assertEquals(2, cache.stats().loadSuccessCount());
+    }
+
+    @Test
+    void expiredEntryIsNotReturned() throws Exception {
+        TestCache cache = new TestCache(Duration.ofMillis(50), null, null);
+        cache.put(1L, "v1");
+        assertEquals("v1", cache.get(1L));
+        Thread.sleep(80);
+
+        assertNull(cache.get(1L));
+        assertEquals("v2", cache.getOrLoad(1L, id -> "v2"));
+    }
+
+    @Test
+    void staleEntryIsServedWhileRefreshReplacesIt() throws Exception {
+        TestCache cache = new TestCache(Duration.ofMinutes(1), Duration.ofMillis(20),
+            Runnable::run);
+        cache.put(1L, "old");
+        Thread.sleep(40);
+
+        assertEquals("old", cache.getOrLoad(1L, id -> "new"));
+        assertEquals("new", cache.get(1L));
+    }
+
+    @Test
+    void rejectedRefreshKeepsValueAndAllowsRetry() throws Exception {
+        AtomicInteger submitted = new AtomicInteger();
+        Executor rejectFirst = task -> {
+            if (submitted.incrementAndGet() == 1) {
+                throw new RejectedExecutionException("queue is full");
+            }
+            task.run();
+        };
+        TestCache cache = new TestCache(Duration.ofMinutes(1), Duration.ofMillis(20),
+            rejectFirst);
+        cache.put(1L, "old");
+        Thread.sleep(40);
+
+        assertEquals("old", cache.getOrLoad(1L, id -> "new"));
+        assertEquals("old", cache.get(1L));
+        assertEquals("old", cache.getOrLoad(1L, id -> "new"));
+        assertEquals("new", cache.get(1L));
+    }
+
+    @Test
+    void refreshRequiresExecutor() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new TestCache(null, Duration.ofMinutes(1), null));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
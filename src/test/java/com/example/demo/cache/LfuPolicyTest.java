@@ -0,0 +1,57 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class LfuPolicyTest {
+
+    @Test
+    void evictsLeastFrequentThenOldest() {
+        LfuPolicy<String> policy = new LfuPolicy<>();
+        CacheNode<String> a = new CacheNode<>(1, "a", 0);
+        CacheNode<String> b = new CacheNode<>(2, "b", 0);
+        CacheNode<String> c = new CacheNode<>(3, "c", 0);
+        policy.add(a);
+        policy.add(b);
+        policy.add(c);
+        policy.recordAccess(a);
+        policy.recordAccess(a);
+        policy.recordAccess(c);
+
+        assertEquals(b, policy.victim());
+        policy.remove(b);
+        assertEquals(c, policy.victim());
+        policy.remove(c);
+        assertEquals(a, policy.victim());
+        policy.remove(a);
+        assertNull(policy.victim());
+    }
+
+    @Test
+    void equalFrequencyEvictsLeastRecentlyAccessed() {
+        LfuPolicy<String> policy = new LfuPolicy<>();
+        CacheNode<String> a = new CacheNode<>(1, "a", 0);
+        CacheNode<String> b = new CacheNode<>(2, "b", 0);
+        policy.add(a);
+        policy.add(b);
+        policy.recordAccess(a);
+        policy.recordAccess(b);
+
+        assertEquals(a, policy.victim());
+    }
+
+    @Test
+    void lateAccessToRemovedNodeIsIgnored() {
+        LfuPolicy<String> policy = new LfuPolicy<>();
+        CacheNode<String> a = new CacheNode<>(1, "a", 0);
+        CacheNode<String> b = new CacheNode<>(2, "b", 0);
+        policy.add(a);
+        policy.add(b);
+        policy.remove(a);
+        policy.recordAccess(a);
+
+        assertEquals(b, policy.victim());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class LongNodeTableTest {
+
+    @Test
+    void findsEveryKeyAfterResizes() {
+        LongNodeTable<String> table = new LongNodeTable<>();
+        for (long key = -500; key < 500; key++) {
+            table.insert(new CacheNode<>(key, "v" + key, 0));
+        }
+        assertEquals(1000, table.size());
+        for (long key = -500; key < 500; key++) {
+            assertEquals("v" + key, table.get(key).value);
+        }
+        assertNull(table.get(500));
+        assertNull(table.get(Long.MIN_VALUE));
+    }
+
+    @Test
+    void removalKeepsProbeChainsReachable() {
+        LongNodeTable<String> table = new LongNodeTable<>();
+        for (long key = 0; key < 1000; key++) {
+            table.insert(new CacheNode<>(key, "v" + key, 0));
+        }
+        for (long key = 0; key < 1000; key += 3) {
+            assertEquals(key, table.remove(key).key);
+        }
+        assertNull(table.remove(0));
+        for (long key = 0; key < 1000; key++) {
+            if (key % 3 == 0) {
+                assertNull(table.get(key));
+            } else {
+                assertEquals("v" + key, table.get(key).value);
+            }
+        }
+        assertEquals(666, table.size());
+
+        AtomicInteger visited = new AtomicInteger();
+        table.forEach(node -> visited.incrementAndGet());
+        assertEquals(666, visited.get());
+    }
+
+    @Test
+    void clearEmptiesTable() {
+        LongNodeTable<String> table = new LongNodeTable<>();
+        for (long key = 0; key < 100; key++) {
+            table.insert(new CacheNode<>(key, "v" + key, 0));
+        }
+        table.clear();
+
+        assertEquals(0, table.size());
+        assertNull(table.get(1));
+        table.insert(new CacheNode<>(1, "again", 0));
+        assertEquals("again", table.get(1).value);
+    }
+}
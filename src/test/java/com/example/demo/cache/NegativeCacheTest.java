@@ -0,0 +1,86 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class NegativeCacheTest {
+
+    private static final class TestCache extends NegativeCache<Long> {
+        TestCache(int maximumSize, Duration ttl) {
+            super(maximumSize, ttl);
+        }
+    }
+
+    @Test
+    void missingKeysAreRemembered() {
+        TestCache cache = new TestCache(100, Duration.ofMinutes(1));
+        cache.put(1L);
+        cache.putAll(List.of(2L, 3L));
+
+        assertTrue(cache.contains(1L));
+        assertTrue(cache.contains(3L));
+        assertFalse(cache.contains(4L));
+    }
+
+    @Test
+    void entryExpiresAfterTtl() throws Exception {
+        TestCache cache = new TestCache(100, Duration.ofMillis(50));
+        cache.put(1L);
+        assertTrue(cache.contains(1L));
+        Thread.sleep(80);
+
+        assertFalse(cache.contains(1L));
+    }
+
+    @Test
+    void overflowEvictsOldestEntry() {
+        TestCache cache = new TestCache(2, Duration.ofMinutes(1));
+        cache.put(1L);
+        cache.put(2L);
+        // Повторная вставка делает ключ самым новым
+        cache.put(1L);
+        cache.put(3L);
+
+        assertTrue(cache.contains(1L));
+        assertFalse(cache.contains(2L));
+        assertTrue(cache.contains(3L));
+    }
+
+    @Test
+    void disabledCacheRemembersNothing() {
+        TestCache noSize = new TestCache(0, Duration.ofMinutes(1));
+        TestCache noTtl = new TestCache(100, Duration.ZERO);
+        noSize.put(1L);
+        noTtl.put(1L);
+
+        assertFalse(noSize.contains(1L));
+        assertFalse(noTtl.contains(1L));
+    }
+
+    @Test
+    void createdUserIdIsNoLongerMissing() {
+        MissingUserCache cache = new MissingUserCache(new CacheProperties());
+        cache.putAll(List.of(1L, 2L, 3L));
+        // create и createBulk убирают вставленные id из отрицательного кэша
+        cache.remove(1L);
+        cache.removeAll(List.of(2L));
+
+        assertFalse(cache.contains(1L));
+        assertFalse(cache.contains(2L));
+        assertTrue(cache.contains(3L));
+    }
+
+    @Test
+    void createdReservationIdIsNoLongerMissing() {
+        MissingReservationCache cache = new MissingReservationCache(new CacheProperties());
+        cache.putAll(List.of(1L, 2L));
+        cache.remove(1L);
+
+        assertFalse(cache.contains(1L));
+        assertTrue(cache.contains(2L));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class OccupancyIndexTest {
+
+    private static final int HORIZON_DAYS = 4096;
+
+    @Test
+    void coversBaseDateUntilHorizon() {
+        OccupancyIndex index = new OccupancyIndex();
+        LocalDate base = index.getBaseDate();
+
+        assertFalse(index.covers(base.minusDays(1)));
+        assertTrue(index.covers(base));
+        assertTrue(index.covers(base.plusDays(HORIZON_DAYS - 1)));
+        assertFalse(index.covers(base.plusDays(HORIZON_DAYS)));
+    }
+
+    @Test
+    void firstAndLastDayOfHorizonAreTracked() {
+        OccupancyIndex index = new OccupancyIndex();
+        LocalDate base = index.getBaseDate();
+        LocalDate last = base.plusDays(HORIZON_DAYS - 1);
+        List<LocalDate> occupied = List.of(base, last, base.minusDays(1),
+            base.plusDays(HORIZON_DAYS));
+
+        assertTrue(index.isOccupied(1, base, id -> occupied));
+        assertTrue(index.isOccupied(1, last, id -> occupied));
+        assertFalse(index.isOccupied(1, base.plusDays(1), id -> occupied));
+        assertFalse(index.isOccupied(1, last.minusDays(1), id -> occupied));
+    }
+
+    @Test
+    void occupiedDaysCrossesWordBoundary() {
+        OccupancyIndex index = new OccupancyIndex();
+        LocalDate base = index.getBaseDate();
+        List<LocalDate> occupied = List.of(base.plusDays(60), base.plusDays(63),
+            base.plusDays(64), base.plusDays(70), base.plusDays(71));
+
+        BitSet days = index.occupiedDays(1, base.plusDays(60), 11, id -> occupied);
+        // 71-й день за пределами диапазона
+        assertEquals(bits(0, 3, 4, 10), days);
+    }
+
+    @Test
+    void occupiedDaysAtHorizonEndStaysInsideBitmap() {
+        OccupancyIndex index = new OccupancyIndex();
+        LocalDate base = index.getBaseDate();
+        LocalDate last = base.plusDays(HORIZON_DAYS - 1);
+        List<LocalDate> occupied = List.of(last.minusDays(2), last);
+
+        BitSet days = index.occupiedDays(1, last.minusDays(9), 10, id -> occupied);
+        assertEquals(bits(7, 9), days);
+    }
+
+    @Test
+    void reserveAndReleaseUpdateLoadedSpace() {
+        OccupancyIndex index = new OccupancyIndex();
+        LocalDate date = index.getBaseDate().plusDays(5);
+        assertFalse(index.isOccupied(1, date, id -> List.of()));
+
+        index.reserve(1, date);
+        assertTrue(index.isOccupied(1, date, id -> List.of()));
+        index.release(1, date);
+        assertFalse(index.isOccupied(1, date, id -> List.of()));
+    }
+
+    @Test
+    void loadRacingWithChangeIsDiscarded() {
+        OccupancyIndex index = new OccupancyIndex();
+        LocalDate date = index.getBaseDate().plusDays(5);
+        AtomicInteger loads = new AtomicInteger();
+
+        index.isOccupied(1, date, id -> {
+            loads.incrementAndGet();
+            index.reserve(1, date);
+            return List.of();
+        });
+        assertEquals(0, index.size());
+        assertTrue(index.isOccupied(1, date, id -> {
+            loads.incrementAndGet();
+            return List.of(date);
+        }));
+        assertEquals(2, loads.get());
+        assertEquals(1, index.size());
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet bits = new BitSet();
+        for (int index : indexes) {
+            bits.set(index);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class OffHeapStoreTest {
+
+    // 16 слябов по 100 байт; запись "value-NN" занимает 20 + 12 байт, в сляб входят три
+    private static final long CAPACITY = 1600;
+
+    private static final SnapshotCodec<String> CODEC = new SnapshotCodec<>() {
+        @Override
+        public int size(String value) {
+            return SnapshotCodec.sizeOf(value);
+        }
+
+        @Override
+        public void write(String value, ByteBuffer buffer) {
+            SnapshotCodec.putString(buffer, value);
+        }
+
+        @Override
+        public String read(ByteBuffer buffer) {
+            return SnapshotCodec.getString(buffer);
+        }
+    };
+
+    @Test
+    void takeReturnsValueAndWriteTimeOnce() {
+        OffHeapStore<String> store = new OffHeapStore<>(CAPACITY, CODEC);
+        store.put(1, "value-01", 123);
+
+        CacheNode<String> node = store.take(1);
+        assertEquals("value-01", node.value);
+        assertEquals(123, node.writeTime);
+        assertNull(store.take(1));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void containsKeepsEntryAndSkipsExpiredOne() {
+        OffHeapStore<String> store = new OffHeapStore<>(CAPACITY, CODEC);
+        store.put(1, "value-01", 100);
+
+        assertTrue(store.contains(1, writeTime -> false));
+        assertFalse(store.contains(1, writeTime -> writeTime == 100));
+        assertFalse(store.contains(2, writeTime -> false));
+        assertEquals(1, store.size());
+        assertEquals("value-01", store.take(1).value);
+    }
+
+    @Test
+    void fullStoreReclaimsOldestSlab() {
+        OffHeapStore<String> store = new OffHeapStore<>(CAPACITY, CODEC);
+        for (int key = 10; key < 58; key++) {
+            store.put(key, "value-" + key, 0);
+        }
+        assertEquals(48, store.size());
+
+        store.put(58, "value-58", 0);
+        assertEquals(46, store.size());
+        assertNull(store.take(10));
+        assertNull(store.take(11));
+        assertNull(store.take(12));
+        assertEquals("value-13", store.take(13).value);
+        assertEquals("value-58", store.take(58).value);
+    }
+
+    @Test
+    void reclaimKeepsEntryRewrittenIntoNewerSlab() {
+        OffHeapStore<String> store = new OffHeapStore<>(CAPACITY, CODEC);
+        for (int key = 10; key < 55; key++) {
+            store.put(key, "value-" + key, 0);
+        }
+        store.put(10, "value-99", 0);
+        store.put(55, "value-55", 0);
+        store.put(56, "value-56", 0);
+
+        store.put(57, "value-57", 0);
+        assertEquals("value-99", store.take(10).value);
+        assertNull(store.take(11));
+        assertNull(store.take(12));
+    }
+
+    @Test
+    void recordLargerThanSlabDropsOldCopy() {
+        OffHeapStore<String> store = new OffHeapStore<>(CAPACITY, CODEC);
+        store.put(1, "value-01", 0);
+        store.put(1, "x".repeat(200), 0);
+
+        assertNull(store.take(1));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void clearDropsAllEntries() {
+        OffHeapStore<String> store = new OffHeapStore<>(CAPACITY, CODEC);
+        for (int key = 10; key < 20; key++) {
+            store.put(key, "value-" + key, 0);
+        }
+        store.clear();
+
+        assertEquals(0, store.size());
+        assertNull(store.take(10));
+        store.put(10, "value-10", 0);
+        assertEquals("value-10", store.take(10).value);
+    }
+}
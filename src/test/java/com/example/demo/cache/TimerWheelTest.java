@@ -0,0 +1,63 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+
+    // TTL в 63 тика по 10 нс: колесо из 64 корзин покрывает его за один оборот
+    private static final long EXPIRE = 630;
+
+    @Test
+    void expiresEntryScheduledPastWheelEnd() {
+        // Старт на 60-м тике: срок истекает на 123-м, в корзине 59 после перехода через 0
+        long start = 600;
+        TimerWheel<String> wheel = new TimerWheel<>(EXPIRE, start);
+        CacheNode<String> node = new CacheNode<>(1, "v", start);
+        wheel.schedule(node, start + EXPIRE);
+        List<CacheNode<String>> expired = new ArrayList<>();
+
+        wheel.advance(1000, EXPIRE, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(start + EXPIRE - 1, EXPIRE, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(start + EXPIRE, EXPIRE, expired::add);
+        assertEquals(List.of(node), expired);
+        assertEquals(-1, node.timerBucket);
+    }
+
+    @Test
+    void jumpOverSeveralTurnsVisitsEveryBucketOnce() {
+        TimerWheel<String> wheel = new TimerWheel<>(EXPIRE, 0);
+        List<CacheNode<String>> nodes = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            CacheNode<String> node = new CacheNode<>(i, "v" + i, i * 10L);
+            wheel.schedule(node, i * 10L + EXPIRE);
+            nodes.add(node);
+        }
+        List<CacheNode<String>> expired = new ArrayList<>();
+
+        wheel.advance(100_000, EXPIRE, expired::add);
+        assertEquals(60, expired.size());
+        assertTrue(expired.containsAll(nodes));
+    }
+
+    @Test
+    void rewrittenEntryStaysUntilNewDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(EXPIRE, 0);
+        CacheNode<String> node = new CacheNode<>(1, "v", 0);
+        wheel.schedule(node, EXPIRE);
+        node.writeTime = 300;
+        wheel.schedule(node, 300 + EXPIRE);
+        List<CacheNode<String>> expired = new ArrayList<>();
+
+        wheel.advance(EXPIRE, EXPIRE, expired::add);
+        assertTrue(expired.isEmpty());
+        wheel.advance(300 + EXPIRE, EXPIRE, expired::add);
+        assertEquals(List.of(node), expired);
+    }
+}
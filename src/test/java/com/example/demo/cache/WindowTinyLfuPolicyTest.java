@@ -0,0 +1,68 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class WindowTinyLfuPolicyTest {
+
+    private static final int CAPACITY = 100;
+
+    @Test
+    void oneHitCandidateLosesToFrequentEntry() {
+        WindowTinyLfuPolicy<String> policy = new WindowTinyLfuPolicy<>(CAPACITY);
+        CacheNode<String>[] nodes = fill(policy);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < CAPACITY - 1; i++) {
+                policy.recordAccess(nodes[i]);
+            }
+        }
+        CacheNode<String> candidate = new CacheNode<>(1000, "new", 0);
+        policy.add(candidate);
+
+        assertEquals(candidate, policy.victim());
+    }
+
+    @Test
+    void frequentCandidateIsAdmittedOverColdEntry() {
+        WindowTinyLfuPolicy<String> policy = new WindowTinyLfuPolicy<>(CAPACITY);
+        CacheNode<String>[] nodes = fill(policy);
+        CacheNode<String> candidate = new CacheNode<>(1000, "new", 0);
+        policy.add(candidate);
+        for (int i = 0; i < 3; i++) {
+            policy.recordAccess(candidate);
+        }
+
+        assertEquals(nodes[0], policy.victim());
+        assertEquals(WindowTinyLfuPolicy.PROBATION, candidate.queue);
+    }
+
+    @Test
+    void shrinkingCapacityDemotesProtectedEntries() {
+        WindowTinyLfuPolicy<String> policy = new WindowTinyLfuPolicy<>(CAPACITY);
+        CacheNode<String>[] nodes = fill(policy);
+        for (int i = 0; i < CAPACITY - 1; i++) {
+            policy.recordAccess(nodes[i]);
+        }
+        policy.setCapacity(10);
+
+        int protectedCount = 0;
+        for (CacheNode<String> node : nodes) {
+            if (node.queue == WindowTinyLfuPolicy.PROTECTED) {
+                protectedCount++;
+            }
+        }
+        // Окно 1, защищённая область — 80% остатка
+        assertEquals(7, protectedCount);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CacheNode<String>[] fill(WindowTinyLfuPolicy<String> policy) {
+        CacheNode<String>[] nodes = new CacheNode[CAPACITY];
+        for (int i = 0; i < CAPACITY; i++) {
+            nodes[i] = new CacheNode<>(i + 1, "v" + (i + 1), 0);
+            policy.add(nodes[i]);
+        }
+        return nodes;
+    }
+}
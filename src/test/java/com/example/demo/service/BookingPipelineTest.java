@@ -0,0 +1,148 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.demo.exception.BadRequestException;
+import com.example.demo.exception.InternalErrorException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class BookingPipelineTest {
+
+    private record Booking(long spaceId, int day) {
+    }
+
+    @Test
+    void conflictingBookingsInOneLaneHaveSingleWinner() throws Exception {
+        // HashSet без синхронизации: корректен, только если полоса обрабатывается по очереди
+        Set<Booking> taken = new HashSet<>();
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        BookingPipeline<Booking, Booking> pipeline = new BookingPipeline<>(Booking::spaceId,
+            batch -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                for (BookingPipeline.Request<Booking, Booking> request : batch) {
+                    if (taken.add(request.payload())) {
+                        request.complete(request.payload());
+                    } else {
+                        request.fail(new BadRequestException("Space is already reserved"));
+                    }
+                }
+                active.decrementAndGet();
+            }, 8);
+
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Booking>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return pipeline.submit(new Booking(1, 10));
+                }));
+            }
+            start.countDown();
+            int booked = 0;
+            int rejected = 0;
+            for (Future<Booking> future : futures) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                    booked++;
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof BadRequestException);
+                    rejected++;
+                }
+            }
+            assertEquals(1, booked);
+            assertEquals(threads - 1, rejected);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, maxActive.get());
+    }
+
+    @Test
+    void processorFailureFailsWholeBatch() {
+        IllegalStateException failure = new IllegalStateException("database is down");
+        BookingPipeline<Booking, Booking> pipeline = new BookingPipeline<>(Booking::spaceId,
+            batch -> {
+                throw failure;
+            }, 8);
+
+        assertSame(failure, assertThrows(IllegalStateException.class,
+            () -> pipeline.submit(new Booking(1, 10))));
+    }
+
+    @Test
+    void requestLeftUnfinishedIsReportedAsInternalError() {
+        BookingPipeline<Booking, Booking> pipeline = new BookingPipeline<>(Booking::spaceId,
+            batch -> {
+                // обработчик забыл завершить заявку
+            }, 8);
+
+        assertThrows(InternalErrorException.class, () -> pipeline.submit(new Booking(1, 10)));
+    }
+
+    @Test
+    void errorInProcessorCompletesEveryDrainedRequest() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch othersQueued = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        BookingPipeline<Booking, Booking> pipeline = new BookingPipeline<>(Booking::spaceId,
+            batch -> {
+                if (calls.incrementAndGet() == 1) {
+                    firstBatchStarted.countDown();
+                    await(othersQueued);
+                    batch.forEach(request -> request.complete(request.payload()));
+                    return;
+                }
+                throw new ProcessorError();
+            }, 8);
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            Future<Booking> first = pool.submit(() -> pipeline.submit(new Booking(1, 1)));
+            assertTrue(firstBatchStarted.await(10, TimeUnit.SECONDS));
+            // Пока полоса занята, следующие заявки копятся и уходят одной пачкой
+            List<Future<Booking>> queued = List.of(
+                pool.submit(() -> pipeline.submit(new Booking(1, 2))),
+                pool.submit(() -> pipeline.submit(new Booking(1, 3))));
+            Thread.sleep(100);
+            othersQueued.countDown();
+
+            assertEquals(new Booking(1, 1), first.get(10, TimeUnit.SECONDS));
+            for (Future<Booking> future : queued) {
+                ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> future.get(10, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof ProcessorError);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static final class ProcessorError extends Error {
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
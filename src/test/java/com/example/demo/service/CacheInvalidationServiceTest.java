@@ -0,0 +1,163 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.demo.cache.CacheInvalidation;
+import com.example.demo.cache.CacheInvalidationBus;
+import com.example.demo.cache.CacheInvalidationListener;
+import com.example.demo.cache.CacheProperties;
+import com.example.demo.cache.CacheRefreshExecutor;
+import com.example.demo.cache.CoworkingSpaceCache;
+import com.example.demo.cache.CoworkingSpaceSnapshotCodec;
+import com.example.demo.cache.MissingReservationCache;
+import com.example.demo.cache.MissingUserCache;
+import com.example.demo.cache.OccupancyIndex;
+import com.example.demo.cache.ReservationCache;
+import com.example.demo.cache.ReservationSnapshotCodec;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cache.UserSnapshot;
+import com.example.demo.cache.UserSnapshotCodec;
+import com.example.demo.cache.UsersByDateCache;
+import com.example.demo.cache.UsersBySpaceCache;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+class CacheInvalidationServiceTest {
+
+    private final CacheProperties properties = new CacheProperties();
+    private final UserCache userCache = new UserCache(properties, new UserSnapshotCodec(),
+        new CacheRefreshExecutor(properties));
+    private final MissingUserCache missingUserCache = new MissingUserCache(properties);
+    private final OccupancyIndex occupancyIndex = new OccupancyIndex();
+    private final RecordingBus bus = new RecordingBus();
+    private final CacheInvalidationService service = service();
+
+    @Test
+    void ownOccupancyMessageKeepsIndex() {
+        LocalDate date = occupancyIndex.getBaseDate();
+        occupancyIndex.isOccupied(1, date, id -> List.of(date));
+        service.invalidateRemote(CacheService.OCCUPANCY, 1);
+
+        CacheInvalidation own = bus.published.get(0);
+        service.onInvalidation(own);
+        assertTrue(occupancyIndex.isLoaded(1));
+
+        service.onInvalidation(new CacheInvalidation("other", CacheService.OCCUPANCY,
+            new long[] {1}));
+        assertFalse(occupancyIndex.isLoaded(1));
+    }
+
+    @Test
+    void valueWrittenInTransactionStaysCachedAfterCommit() {
+        inTransaction(true, () -> {
+            userCache.put(1L, user(1, "new"));
+            service.invalidateRemote(CacheService.USERS, 1);
+        });
+
+        assertEquals(1, bus.published.size());
+        assertArrayEquals(new long[] {1}, bus.published.get(0).keys());
+        assertNotNull(userCache.get(1L));
+        assertEquals("new", userCache.get(1L).firstName());
+    }
+
+    @Test
+    void removedKeyIsEvictedAgainAfterCommit() {
+        userCache.put(1L, user(1, "old"));
+        inTransaction(true, () -> {
+            userCache.remove(1L);
+            service.invalidate(CacheService.USERS, 1);
+            // Параллельное чтение до коммита вернуло в кэш старую строку
+            userCache.put(1L, user(1, "old"));
+        });
+
+        assertNull(userCache.get(1L));
+    }
+
+    @Test
+    void createdIdRememberedAsMissingBeforeCommitIsForgotten() {
+        inTransaction(true, () -> {
+            userCache.put(5L, user(5, "new"));
+            missingUserCache.remove(5L);
+            service.invalidateRemote(CacheService.USERS, 5);
+            // Промах параллельного чтения до коммита
+            missingUserCache.put(5L);
+        });
+
+        assertFalse(missingUserCache.contains(5L));
+        assertNotNull(userCache.get(5L));
+    }
+
+    @Test
+    void rollbackEvictsWrittenValuesAndPublishesNothing() {
+        inTransaction(false, () -> {
+            userCache.put(1L, user(1, "uncommitted"));
+            service.invalidateRemote(CacheService.USERS, 1);
+        });
+
+        assertTrue(bus.published.isEmpty());
+        assertNull(userCache.get(1L));
+    }
+
+    // Имитирует транзакцию: синхронизации вызываются так же, как при коммите или откате
+    private static void inTransaction(boolean commit, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            List<TransactionSynchronization> synchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+            if (commit) {
+                TransactionSynchronizationUtils.triggerBeforeCommit(false);
+                TransactionSynchronizationUtils.triggerAfterCommit();
+            }
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, commit
+                ? TransactionSynchronization.STATUS_COMMITTED
+                : TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private CacheInvalidationService service() {
+        CacheRefreshExecutor refreshExecutor = new CacheRefreshExecutor(properties);
+        CacheService cacheService = new CacheService(userCache,
+            new ReservationCache(properties, new ReservationSnapshotCodec(), refreshExecutor),
+            new CoworkingSpaceCache(properties, new CoworkingSpaceSnapshotCodec(),
+                refreshExecutor),
+            new UsersByDateCache(properties, refreshExecutor),
+            new UsersBySpaceCache(properties, refreshExecutor),
+            missingUserCache, new MissingReservationCache(properties), occupancyIndex);
+        CacheInvalidationService invalidationService =
+            new CacheInvalidationService(bus, cacheService);
+        invalidationService.subscribe();
+        return invalidationService;
+    }
+
+    private static UserSnapshot user(long id, String firstName) {
+        return new UserSnapshot(id, firstName, null, "Doe", "user" + id + "@example.com",
+            new long[0]);
+    }
+
+    // Запоминает отправленные сообщения, доставкой управляет тест
+    private static final class RecordingBus implements CacheInvalidationBus {
+        final List<CacheInvalidation> published = new ArrayList<>();
+
+        @Override
+        public void publish(CacheInvalidation invalidation) {
+            published.add(invalidation);
+        }
+
+        @Override
+        public void subscribe(CacheInvalidationListener listener) {
+        }
+    }
+}
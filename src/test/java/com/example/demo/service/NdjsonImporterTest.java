@@ -0,0 +1,192 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.demo.dto.ImportResultDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.constraints.NotBlank;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class NdjsonImporterTest {
+
+    record Item(@NotBlank String name) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void badLinesAreReportedWithoutStoppingImport() throws IOException {
+        String input = String.join("\n",
+            "{\"name\":\"first\"}",
+            "{not json",
+            "",
+            "{\"name\":\"\"}",
+            "{\"name\":\"last\"}");
+
+        List<ImportResultDto> results = run(input, NdjsonImporterTest::createAll);
+
+        assertEquals(List.of(1L, 2L, 4L, 5L), results.stream().map(ImportResultDto::getLine)
+            .toList());
+        assertTrue(results.get(0).isCreated());
+        assertFalse(results.get(1).isCreated());
+        assertTrue(results.get(1).getError().startsWith("Malformed JSON"));
+        assertFalse(results.get(2).isCreated());
+        // Текст нарушения зависит от локали валидатора
+        assertNotNull(results.get(2).getError());
+        assertTrue(results.get(3).isCreated());
+        assertEquals(5L, results.get(3).getId());
+    }
+
+    @Test
+    void recordsAreWrittenInChunksAndReportedPerChunk() throws IOException {
+        StringBuilder input = new StringBuilder();
+        int count = NdjsonImporter.CHUNK_SIZE * 2 + 1;
+        for (int i = 0; i < count; i++) {
+            input.append("{\"name\":\"item-").append(i).append("\"}\n");
+        }
+        List<Integer> chunkSizes = new ArrayList<>();
+        List<Integer> writtenBefore = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        importer().run(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)),
+            out, Item.class, chunk -> {
+                chunkSizes.add(chunk.size());
+                writtenBefore.add((int) out.toString(StandardCharsets.UTF_8).chars()
+                    .filter(c -> c == '\n')
+                    .count());
+                return createAll(chunk);
+            });
+
+        assertEquals(List.of(NdjsonImporter.CHUNK_SIZE, NdjsonImporter.CHUNK_SIZE, 1),
+            chunkSizes);
+        // Результаты пачки уходят клиенту до чтения следующей
+        assertEquals(List.of(0, NdjsonImporter.CHUNK_SIZE, NdjsonImporter.CHUNK_SIZE * 2),
+            writtenBefore);
+        assertEquals(count, parse(out).size());
+    }
+
+    @Test
+    void conflictingChunkIsRetriedRecordByRecord() throws IOException {
+        String input = String.join("\n",
+            "{\"name\":\"first\"}",
+            "{\"name\":\"duplicate\"}",
+            "{\"name\":\"last\"}");
+
+        List<ImportResultDto> results = run(input, chunk -> {
+            if (chunk.stream().anyMatch(record -> record.value().name().equals("duplicate"))) {
+                throw new DataIntegrityViolationException("duplicate key");
+            }
+            return createAll(chunk);
+        });
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isCreated());
+        assertFalse(results.get(1).isCreated());
+        assertEquals("Record conflicts with existing data", results.get(1).getError());
+        assertTrue(results.get(2).isCreated());
+    }
+
+    @Test
+    void nullLineIsRejected() throws IOException {
+        String input = String.join("\n",
+            "null",
+            "{\"name\":\"valid\"}");
+
+        List<ImportResultDto> results = run(input, NdjsonImporterTest::createAll);
+
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isCreated());
+        assertEquals("Record must not be null", results.get(0).getError());
+        assertTrue(results.get(1).isCreated());
+    }
+
+    @Test
+    void rejectionsAreFlushedInChunksWithoutValidRecords() throws IOException {
+        StringBuilder input = new StringBuilder("{\"name\":\"first\"}\n");
+        int bad = NdjsonImporter.CHUNK_SIZE * 2;
+        for (int i = 0; i < bad; i++) {
+            input.append("{not json\n");
+        }
+        List<Integer> chunkSizes = new ArrayList<>();
+        // Число результатов, дошедших до клиента к каждому flush
+        List<Long> flushed = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushed.add(toString(StandardCharsets.UTF_8).chars()
+                    .filter(c -> c == '\n')
+                    .count());
+            }
+        };
+
+        importer().run(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)),
+            out, Item.class, chunk -> {
+                chunkSizes.add(chunk.size());
+                return createAll(chunk);
+            });
+
+        // Первая пачка: запись из строки 1 и первые CHUNK_SIZE отказов
+        long first = NdjsonImporter.CHUNK_SIZE + 1L;
+        assertEquals(List.of(first, first + NdjsonImporter.CHUNK_SIZE,
+            first + NdjsonImporter.CHUNK_SIZE), flushed);
+        assertEquals(List.of(1), chunkSizes);
+        List<ImportResultDto> results = parse(out);
+        assertEquals(bad + 1, results.size());
+        assertTrue(results.get(0).isCreated());
+        assertEquals(2L, results.get(1).getLine());
+    }
+
+    private List<ImportResultDto> run(
+        String input,
+        Function<List<NdjsonImporter.ImportRecord<Item>>, List<ImportResultDto>> handler)
+        throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        importer().run(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out,
+            Item.class, handler);
+        return parse(out);
+    }
+
+    private NdjsonImporter importer() {
+        ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory();
+        // Транзакция не нужна: обработчик вызывается напрямую
+        TransactionTemplate transactionTemplate = new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(new SimpleTransactionStatus());
+            }
+        };
+        return new NdjsonImporter(objectMapper, validatorFactory.getValidator(),
+            transactionTemplate);
+    }
+
+    private List<ImportResultDto> parse(ByteArrayOutputStream out) throws IOException {
+        List<ImportResultDto> results = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            results.add(objectMapper.readValue(line, ImportResultDto.class));
+        }
+        return results;
+    }
+
+    private static List<ImportResultDto> createAll(
+        List<NdjsonImporter.ImportRecord<Item>> chunk) {
+        return chunk.stream()
+            .map(record -> NdjsonImporter.created(record, record.line()))
+            .toList();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.demo.dto.PageDto;
+import com.example.demo.exception.BadRequestException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PageCursorTest {
+
+    @Test
+    void encodedCursorDecodesToSameValues() {
+        String cursor = PageCursor.encode(PageCursor.BY_DATE, "2025-03-01", 42);
+        PageCursor decoded = PageCursor.decode(cursor, PageCursor.BY_DATE);
+
+        assertEquals(new PageCursor(PageCursor.BY_DATE, "2025-03-01", 42), decoded);
+        assertEquals(LocalDate.of(2025, 3, 1), decoded.date());
+    }
+
+    @Test
+    void cursorOfAnotherSortIsRejected() {
+        String cursor = PageCursor.encode(PageCursor.BY_ID, "", 42);
+
+        assertEquals(42, PageCursor.decode(cursor, PageCursor.BY_ID).id());
+        assertThrows(BadRequestException.class,
+            () -> PageCursor.decode(cursor, PageCursor.BY_DATE));
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String cursor : List.of("not base64!", raw("id:"), raw("id::x"), raw("id::1:2"),
+            raw(""))) {
+            assertThrows(BadRequestException.class,
+                () -> PageCursor.decode(cursor, PageCursor.BY_ID), cursor);
+        }
+        PageCursor badDate = PageCursor.decode(raw("date:yesterday:1"), PageCursor.BY_DATE);
+        assertThrows(BadRequestException.class, badDate::date);
+    }
+
+    @Test
+    void extraRowMarksNextPage() {
+        PageDto<Long> page = PageCursor.toPage(List.of(1L, 2L, 3L), 2, rows -> rows,
+            row -> "cursor-" + row);
+        assertEquals(List.of(1L, 2L), page.getItems());
+        assertEquals("cursor-2", page.getNextCursor());
+
+        PageDto<Long> last = PageCursor.toPage(List.of(1L, 2L), 2, rows -> rows,
+            row -> "cursor-" + row);
+        assertEquals(List.of(1L, 2L), last.getItems());
+        assertNull(last.getNextCursor());
+    }
+
+    private static String raw(String value) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,4 +1,171 @@
 package com.example.demo.service;
 
-public class ReservationServiceTest {
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.demo.cache.CacheProperties;
+import com.example.demo.cache.CacheRefreshExecutor;
+import com.example.demo.cache.CoworkingSpaceCache;
+import com.example.demo.cache.CoworkingSpaceSnapshotCodec;
+import com.example.demo.cache.LoopbackInvalidationBus;
+import com.example.demo.cache.MissingReservationCache;
+import com.example.demo.cache.MissingUserCache;
+import com.example.demo.cache.OccupancyIndex;
+import com.example.demo.cache.ReservationCache;
+import com.example.demo.cache.ReservationSnapshotCodec;
+import com.example.demo.cache.UserCache;
+import com.example.demo.cache.UserSnapshotCodec;
+import com.example.demo.cache.UsersByDateCache;
+import com.example.demo.cache.UsersBySpaceCache;
+import com.example.demo.dto.ReservationDto;
+import com.example.demo.entity.CoworkingSpace;
+import com.example.demo.entity.Reservation;
+import com.example.demo.entity.User;
+import com.example.demo.exception.BadRequestException;
+import com.example.demo.repository.CoworkingSpaceRepository;
+import com.example.demo.repository.ReservationRepository;
+import com.example.demo.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ReservationServiceTest {
+
+    private final ReservationRepository reservationRepository =
+        mock(ReservationRepository.class);
+    private final CoworkingSpaceRepository coworkingSpaceRepository =
+        mock(CoworkingSpaceRepository.class);
+    private final OccupancyIndex occupancyIndex = new OccupancyIndex();
+
+    private final LocalDate date = LocalDate.now().plusDays(3);
+    private final Reservation existing = reservation(10L, space(1L), date);
+
+    @Test
+    void reservationMovesToFreeDateOfSpaceNotYetLoaded() {
+        stubReservedDates(List.of());
+        LocalDate newDate = date.plusDays(1);
+
+        ReservationDto updated = service().updateReservation(10L, dto(2L, newDate))
+            .orElseThrow();
+
+        assertEquals(2L, updated.getCoworkingSpaceId());
+        assertEquals(newDate, updated.getDate());
+        assertEquals(newDate, existing.getDate());
+    }
+
+    @Test
+    void reservationMovesToFreeDateOfSameSpace() {
+        stubReservedDates(List.of());
+        LocalDate newDate = date.plusDays(1);
+
+        ReservationDto updated = service().updateReservation(10L, dto(1L, newDate))
+            .orElseThrow();
+
+        assertEquals(newDate, updated.getDate());
+    }
+
+    @Test
+    void moveToReservedDateIsRejectedWithoutChangingReservation() {
+        LocalDate newDate = date.plusDays(1);
+        stubReservedDates(List.of(newDate));
+        ReservationService service = service();
+
+        assertThrows(BadRequestException.class,
+            () -> service.updateReservation(10L, dto(2L, newDate)));
+        assertEquals(date, existing.getDate());
+        assertEquals(1L, existing.getCoworkingSpace().getId());
+        verify(reservationRepository, never()).saveAndFlush(any());
+    }
+
+    // Запросы занятости видят сохранённое состояние брони так, как его увидел бы
+    // автосброс Hibernate перед запросом, плюс занятые другими бронями дни пространства 2
+    private void stubReservedDates(List<LocalDate> otherReservations) {
+        when(reservationRepository.findForUpdate(10L)).thenReturn(Optional.of(existing));
+        when(coworkingSpaceRepository.findById(2L)).thenReturn(Optional.of(space(2L)));
+        when(reservationRepository.findReservedDates(anyLong(), any())).thenAnswer(invocation ->
+            reservedDates(invocation.getArgument(0), otherReservations));
+        when(reservationRepository.existsByDateAndCoworkingSpaceId(any(), anyLong()))
+            .thenAnswer(invocation -> reservedDates(invocation.getArgument(1), otherReservations)
+                .contains(invocation.<LocalDate>getArgument(0)));
+        when(reservationRepository.saveAndFlush(any()))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private List<LocalDate> reservedDates(long spaceId, List<LocalDate> otherReservations) {
+        Set<LocalDate> dates = new HashSet<>();
+        if (existing.getCoworkingSpace().getId() == spaceId) {
+            dates.add(existing.getDate());
+        }
+        if (spaceId == 2L) {
+            dates.addAll(otherReservations);
+        }
+        return List.copyOf(dates);
+    }
+
+    private ReservationService service() {
+        CacheProperties properties = new CacheProperties();
+        CacheRefreshExecutor refreshExecutor = new CacheRefreshExecutor(properties);
+        UserCache userCache = new UserCache(properties, new UserSnapshotCodec(), refreshExecutor);
+        ReservationCache reservationCache = new ReservationCache(properties,
+            new ReservationSnapshotCodec(), refreshExecutor);
+        CoworkingSpaceCache coworkingSpaceCache = new CoworkingSpaceCache(properties,
+            new CoworkingSpaceSnapshotCodec(), refreshExecutor);
+        UsersByDateCache usersByDateCache = new UsersByDateCache(properties, refreshExecutor);
+        UsersBySpaceCache usersBySpaceCache = new UsersBySpaceCache(properties, refreshExecutor);
+        MissingReservationCache missingReservationCache = new MissingReservationCache(properties);
+        CacheService cacheService = new CacheService(userCache, reservationCache,
+            coworkingSpaceCache, usersByDateCache, usersBySpaceCache,
+            new MissingUserCache(properties), missingReservationCache, occupancyIndex);
+        CacheInvalidationService cacheInvalidationService =
+            new CacheInvalidationService(new LoopbackInvalidationBus(), cacheService);
+        cacheInvalidationService.subscribe();
+        EntityManager entityManager = mock(EntityManager.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate();
+        ObjectMapper objectMapper = new ObjectMapper();
+        return new ReservationService(reservationRepository, coworkingSpaceRepository,
+            mock(UserRepository.class), reservationCache, missingReservationCache,
+            transactionTemplate, userCache, coworkingSpaceCache, usersByDateCache,
+            usersBySpaceCache, cacheInvalidationService, occupancyIndex, entityManager,
+            new NdjsonImporter(objectMapper, mock(Validator.class), transactionTemplate),
+            new StreamingExporter(objectMapper, entityManager));
+    }
+
+    private static CoworkingSpace space(long id) {
+        CoworkingSpace space = new CoworkingSpace();
+        space.setId(id);
+        return space;
+    }
+
+    private static Reservation reservation(long id, CoworkingSpace space, LocalDate date) {
+        User user = new User();
+        user.setId(100L);
+        Reservation reservation = new Reservation();
+        reservation.setId(id);
+        reservation.setCoworkingSpace(space);
+        reservation.setDate(date);
+        reservation.setUsers(new HashSet<>(Set.of(user)));
+        return reservation;
+    }
+
+    private static ReservationDto dto(long spaceId, LocalDate date) {
+        ReservationDto dto = new ReservationDto();
+        dto.setId(10L);
+        dto.setCoworkingSpaceId(spaceId);
+        dto.setDate(date);
+        dto.setUserIds(List.of(100L));
+        return dto;
+    }
 }
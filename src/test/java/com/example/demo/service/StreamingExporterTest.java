@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class StreamingExporterTest {
+
+    private static final List<String> HEADER = List.of("id", "name");
+
+    private final AtomicInteger clears = new AtomicInteger();
+
+    @Test
+    void csvFieldsAreEscaped() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<List<?>> rows = List.of(
+            Arrays.asList(1L, "plain"),
+            Arrays.asList(2L, "a,b"),
+            Arrays.asList(3L, "say \"hi\""),
+            Arrays.asList(4L, "two\nlines"),
+            Arrays.asList(5L, "cr\rhere"),
+            Arrays.asList(6L, null));
+
+        exporter().writeCsv(rows.stream(), out, HEADER, chunk -> chunk, row -> row);
+
+        assertEquals("id,name\r\n"
+            + "1,plain\r\n"
+            + "2,\"a,b\"\r\n"
+            + "3,\"say \"\"hi\"\"\"\r\n"
+            + "4,\"two\nlines\"\r\n"
+            + "5,\"cr\rhere\"\r\n"
+            + "6,\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void emptyExportStillHasHeader() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter().writeCsv(Stream.<List<?>>empty(), out, HEADER, chunk -> chunk, row -> row);
+
+        assertEquals("id,name\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void headerIsFlushedWhenExportFails() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Stream<Long> rows = Stream.iterate(1L, id -> {
+            if (id == 3) {
+                throw new IllegalStateException("cursor closed");
+            }
+            return id + 1;
+        });
+
+        assertThrows(IllegalStateException.class, () -> exporter().writeCsv(rows, out, HEADER,
+            chunk -> chunk, id -> List.of(id, "name" + id)));
+        assertEquals(1, lines(out));
+    }
+
+    @Test
+    void rowsAreFlushedAfterEveryChunk() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int rows = StreamingExporter.CLEAR_INTERVAL * 2 + 1;
+        // Сколько строк уже дошло до потока к моменту обработки каждой строки
+        List<Long> written = new ArrayList<>();
+
+        exporter().writeCsv(LongStream.rangeClosed(1, rows).boxed(), out, HEADER,
+            chunk -> chunk, id -> {
+                written.add(lines(out));
+                return List.of(id, "name" + id);
+            });
+
+        int interval = StreamingExporter.CLEAR_INTERVAL;
+        assertEquals(interval + 1L, written.get(interval));
+        assertEquals(2L * interval + 1, written.get(2 * interval));
+        assertEquals(rows + 1L, lines(out));
+        assertEquals(3, clears.get());
+    }
+
+    private StreamingExporter exporter() {
+        EntityManager entityManager = (EntityManager) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class<?>[] {EntityManager.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("clear")) {
+                    clears.incrementAndGet();
+                    return null;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+        return new StreamingExporter(new ObjectMapper(), entityManager);
+    }
+
+    private static long lines(ByteArrayOutputStream out) {
+        return out.toString(StandardCharsets.UTF_8).chars().filter(c -> c == '\n').count();
+    }
+}